@@ -4,27 +4,44 @@ import java.awt.Color;
 import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.Font;
+import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
 import javax.swing.BorderFactory;
 import javax.swing.Box;
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
+import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JComboBox;
+import javax.swing.JFileChooser;
 import javax.swing.JLabel;
+import javax.swing.JMenuItem;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 
 import Circuit.Circuit;
 import Circuit.CircuitExamples;
 import Circuit.StatTesting;
 import Main.GlobalAttributes;
+import Model.Definition;
 import Model.EventStructure;
+import Model.EventStructureRender;
+import Model.Parser;
+import Model.StateGraph;
+import Model.StateSpaceEstimate;
 import Model.TransitionGraph;
+import Model.TransitionGraphRender;
 
 /* This class encapsulates the control panel that is viewed on the left hand
  * side of the main window */
@@ -33,6 +50,16 @@ implements ActionListener, ItemListener{
 	
 	private static final long serialVersionUID = 1L;
 
+	/* The time spent estimating the size of the transition graph before
+	 * building it, in milliseconds */
+	static final long ESTIMATE_MILLIS=250;
+
+	/* The ways of showing the transition graph of a loaded structure, in
+	 * the order offered when it is likely to be too large to build */
+	static final int BUILD=0;
+	static final int EXPAND=1;
+	static final int SKIP=2;
+
 	/* Switches between graph mode and circuit mode - currently only
 	 * graph mode is implemented */
     @SuppressWarnings("rawtypes")
@@ -99,6 +126,40 @@ implements ActionListener, ItemListener{
 	public JTextArea inputArea = new JTextArea();
 	JScrollPane inputScrollPane= new JScrollPane(inputArea);
 	
+	/* Menu item for loading a definition from a file - this sits in
+	 * the main window's File menu */
+	JMenuItem open = new JMenuItem("Open...");
+	
+	/* Menu item which hides inherited conflicts when drawing the
+	 * event structure - this sits in the main window's View menu */
+	JCheckBoxMenuItem immediateConflicts = new JCheckBoxMenuItem("Immediate conflicts only");
+	
+	/* Menu item for setting the limits on building the transition graph -
+	 * this also sits in the View menu */
+	JMenuItem limits = new JMenuItem("Graph limits...");
+	
+	/* Menu item which expands the transition graph on demand around the
+	 * current run rather than building it in full - this also sits in the
+	 * View menu */
+	JCheckBoxMenuItem lazyGraph = new JCheckBoxMenuItem("Expand graph on demand");
+	
+	/* The file from which the Load button reads the definition, or
+	 * null if the definition is taken from the input area. While a file
+	 * is selected the input area only shows a preview of it, and editing
+	 * the preview switches back to loading from the input area */
+	File definitionFile=null;
+	
+	/* Set while the input area is being filled with a preview, so
+	 * that this is not mistaken for the user editing it */
+	boolean showingPreview=false;
+	
+	/* Set if the transition graph was being viewed when a structure was
+	 * loaded, so that the view returns to it once the new graph is ready */
+	boolean viewingGraph=false;
+	
+	/* Dialog used to choose the file to open */
+	JFileChooser chooser=new JFileChooser();
+	
 	/* Labels for each relevant mode */
 	JLabel modelMessage=new JLabel("Define Prime Event Structure");
 	JLabel circuitMessage=new JLabel("Select circuit implementation");
@@ -248,6 +309,26 @@ implements ActionListener, ItemListener{
         help.addActionListener(this);
         view.addActionListener(this);
         analysis.addActionListener(this);
+        open.addActionListener(this);
+        immediateConflicts.addActionListener(this);
+        limits.addActionListener(this);
+        lazyGraph.addActionListener(this);
+        
+        /* Stop loading from the opened file as soon as the user
+         * edits the input area */
+        inputArea.getDocument().addDocumentListener(new DocumentListener(){
+			@Override
+			public void insertUpdate(DocumentEvent e) {
+				inputEdited();
+			}
+			@Override
+			public void removeUpdate(DocumentEvent e) {
+				inputEdited();
+			}
+			@Override
+			public void changedUpdate(DocumentEvent e) {
+			}
+        });
         
         /* Set the item listener for the combo boxes - which is simply
          * this class again */
@@ -293,40 +374,23 @@ implements ActionListener, ItemListener{
 			/* If we are in causality/transition graph mode */
 			if(GlobalAttributes.renderMode==1 || GlobalAttributes.renderMode==2){
 				
-				/* Call upon the EventStructure class to parse the
-				 * input and allow the execution buttons to be pressed
-				 */
 			    OutputFrame.global.write("Preparing event structure");
-			    EventStructure.load();
 			    
-				/* If there is an event structure loaded */
-				if(EventStructure.events.length>0){
-					
-					/* Enable the button which allow the user
-					 * to switch to transition graph view -
-					 * providing that the option to generate
-					 * the graph was selected when loading
-					 * the event structure. Also record
-					 * that the transition graph is available
-					 */
-					if(checkbox.isSelected()){
-						TransitionGraph.buildGraph();
-						GlobalAttributes.transitions=true;
-						view.setEnabled(true);
-					}
-					
-					/* Otherwise disable transition graph
-					 * relevant buttons and options
-					 */
-					else{
-						GlobalAttributes.transitions=false;
-						GlobalAttributes.renderMode=1;
-						view.setEnabled(false);
-					}
-					
-					/* Calculate the on-screen positions of whatever data we are displaying */
-					GraphicsPanel.global.calculatePositions();
-				}
+			    /* If a file has been opened then it is parsed and loaded in
+			     * the background, and the loading is finished off by
+			     * fileLoaded once the structure is in memory */
+			    if(definitionFile!=null){
+			    	setLoading(true);
+			    	new FileLoader(definitionFile).execute();
+			    	return;
+			    }
+			    
+				/* Otherwise parse the input area and call upon the EventStructure
+				 * class to load it, allowing the execution buttons to be pressed
+				 * once it is ready
+				 */
+			    EventStructure.load(parseInput());
+			    prepareLoaded();
 			}
 			
 			/* Otherwise if in circuit mode */
@@ -336,14 +400,58 @@ implements ActionListener, ItemListener{
 				/* Load the circuit selected in the combo box */
 				GlobalAttributes.circuitSelected=circuitSelection.getSelectedIndex()+1;
 				Circuit.load(true);
+				
+				/* Enable relevant execution control buttons */
+				enableExecution();
+			}
+		}
+		
+		/* If the immediate conflicts menu item is toggled, then show or hide
+		 * inherited conflicts and force a repaint */
+		else if(arg0.getActionCommand().equals("Immediate conflicts only")){
+			GlobalAttributes.immediateConflictsOnly=immediateConflicts.isSelected();
+			GraphicsPanel.global.repaint();
+		}
+		
+		/* If the lazy graph menu item is toggled, record it - it takes
+		 * effect when the next structure is loaded */
+		else if(arg0.getActionCommand().equals("Expand graph on demand")){
+			GlobalAttributes.lazyGraph=lazyGraph.isSelected();
+		}
+		
+		/* If the graph limits menu item is selected, let the user edit them */
+		else if(arg0.getActionCommand().equals("Graph limits...")){
+			editLimits();
+		}
+		
+		/* If the Open menu item is selected, let the user choose a file and
+		 * then load it */
+		else if(arg0.getActionCommand().equals("Open...")){
+			if(chooser.showOpenDialog(MainWindow.global)==JFileChooser.APPROVE_OPTION){
+				File file=chooser.getSelectedFile();
+				
+				/* Show the beginning of the file in the input area - the file
+				 * itself is read directly by the loader */
+				try{
+					showingPreview=true;
+					inputArea.setText(FileLoader.preview(file));
+					inputArea.setCaretPosition(0);
+					definitionFile=file;
+					OutputFrame.global.write("Opened "+file.getName()+" ("+file.length()+" bytes)");
+					if(file.length()>FileLoader.PREVIEW_SIZE){
+						OutputFrame.global.write("Showing the first "+FileLoader.PREVIEW_SIZE+
+								" characters of the file");
+					}
+				}catch(IOException e){
+					OutputFrame.global.write("Unable to open "+file.getName()+": "+e.getMessage());
+					return;
+				}finally{
+					showingPreview=false;
+				}
+				
+				/* Load the file straight away */
+				load.doClick();
 			}
-			
-			/* Enable relevant execution control buttons */
-		    start.setEnabled(true);
-		    reset.setEnabled(true);
-		    maxWait.setEnabled(true);
-		    randomSeed.setEnabled(true);
-		    checkbox.setEnabled(true);
 		}
 		
 		/* If the Reset button is pressed */
@@ -381,6 +489,7 @@ implements ActionListener, ItemListener{
 		    /* Disable all relevant buttons */
 		    start.setEnabled(false);
 		    load.setEnabled(false);
+		    open.setEnabled(false);
 		    
 			/* If we are in causality/transition graph mode then disable
 			 * the input field and checkbox */
@@ -465,12 +574,13 @@ implements ActionListener, ItemListener{
 		    load.setEnabled(true);
 		    reset.setEnabled(true);
 		    
-		    /* If we are in graph mode, then re-enable the input area
-		     * and the checkbox
+		    /* If we are in graph mode, then re-enable the input area,
+		     * the checkbox and file opening
 		     */
 		    if(GlobalAttributes.renderMode==1 || GlobalAttributes.renderMode==2){
 		    	inputArea.setEnabled(true);
 		    	checkbox.setEnabled(true);
+		    	open.setEnabled(true);
 		    }
 		    
 		    /* Disable the stop button and enable the mode selection
@@ -510,6 +620,238 @@ implements ActionListener, ItemListener{
 		}
 	}
 
+	/* Parses the input area and returns the corresponding definition - see
+	 * Parser for the format. Any errors in the input are reported to the
+	 * console when it is loaded, along with their position */
+	Definition parseInput(){
+		OutputFrame.global.write("Parsing input");
+		try{
+			return Parser.parse(new StringReader(inputArea.getText()));
+		}catch(IOException e){
+			
+			/* Reading from a string cannot fail, but an empty definition
+			 * is used should it ever do so */
+			return new Definition();
+		}
+	}
+	
+	/* Finishes loading an event structure once it has been loaded into
+	 * memory, by laying out the visualisation and building the transition
+	 * graph if it has been requested. The graph is built in the background,
+	 * and the execution buttons are enabled once it is ready */
+	void prepareLoaded(){
+		
+		/* The transition graph of any previous structure no longer applies,
+		 * so disable transition graph relevant buttons and options until
+		 * the new graph (if any) has been built */
+		viewingGraph=(GlobalAttributes.renderMode==2);
+		TransitionGraph.clearGraph();
+		GlobalAttributes.transitions=false;
+		GlobalAttributes.renderMode=1;
+		view.setEnabled(false);
+		
+		/* Calculate the on-screen positions of whatever data we are displaying */
+		GraphicsPanel.global.calculatePositions();
+		
+		/* Force a repaint of the visualisation */
+		GraphicsPanel.global.repaint();
+		
+		/* If there is an event structure loaded and the option to generate
+		 * the graph was selected when loading it, build the graph - or if it
+		 * is to be expanded on demand, show the empty state's neighbourhood
+		 * straight away. A graph estimated to be over the state limit is
+		 * only built if the user chooses to */
+		int show=SKIP;
+		if(EventStructure.events.length>0 && checkbox.isSelected()){
+			show=GlobalAttributes.lazyGraph?EXPAND:confirmBuild();
+		}
+		if(show==EXPAND){
+			TransitionGraph.showLazily();
+			GlobalAttributes.transitions=true;
+			view.setEnabled(true);
+			restoreView();
+			OutputFrame.global.write("Transition graph will be expanded around the current run");
+			GraphicsPanel.global.calculatePositions();
+			GraphicsPanel.global.repaint();
+		}
+		else if(show==BUILD){
+			OutputFrame.global.write("Building transition graph");
+			setLoading(true);
+			new GraphExplorer().execute();
+			return;
+		}
+		enableExecution();
+	}
+	
+	/* Estimates the size of the transition graph from random probes and,
+	 * if it would probably be cut short by the state limit, asks the user
+	 * whether to build it anyway, to expand it on demand instead or not to
+	 * show it - returns BUILD, EXPAND or SKIP */
+	int confirmBuild(){
+		StateSpaceEstimate estimate=StateSpaceEstimate.estimate(ESTIMATE_MILLIS,Integer.MAX_VALUE,new Random());
+		double[] interval=estimate.stateInterval();
+		OutputFrame.global.write("Transition graph estimated at "+Math.round(estimate.states())+" states (between "+
+				Math.round(interval[0])+" and "+Math.round(interval[1])+") from "+estimate.probes()+" probes");
+		if(estimate.states()<=GlobalAttributes.maxStates){
+			return BUILD;
+		}
+		String message="The transition graph is estimated to have about "+Math.round(estimate.states())+
+				" states (95% confidence\ninterval "+Math.round(interval[0])+" to "+Math.round(interval[1])+
+				"), above the limit of "+GlobalAttributes.maxStates+" states, so it\nwould probably be cut short.";
+		Object[] options={"Build anyway","Expand on demand","Do not show"};
+		int choice=JOptionPane.showOptionDialog(MainWindow.global,message,"Large transition graph",
+				JOptionPane.DEFAULT_OPTION,JOptionPane.WARNING_MESSAGE,null,options,options[EXPAND]);
+		return choice==JOptionPane.CLOSED_OPTION?SKIP:choice;
+	}
+	
+	/* Called by the GraphExplorer on the event dispatch thread once the
+	 * transition graph has been built - the graph is null if it could not be
+	 * built. Enables the button which allows the user to switch to transition
+	 * graph view, and records that the transition graph is available */
+	void graphExplored(StateGraph graph){
+		setLoading(false);
+		if(graph!=null){
+			TransitionGraph.graph=graph;
+			TransitionGraph.resetTrace();
+			GlobalAttributes.transitions=true;
+			view.setEnabled(true);
+			restoreView();
+			if(graph.isTruncated()){
+				OutputFrame.global.write("Transition graph truncated: "+graph.truncation()+
+						" - showing "+graph.size()+" states");
+			}
+			else{
+				OutputFrame.global.write("Transition graph built with "+graph.size()+" states");
+			}
+			GraphicsPanel.global.calculatePositions();
+			GraphicsPanel.global.repaint();
+		}
+		enableExecution();
+	}
+	
+	/* Returns to the transition graph view if it was being viewed when the
+	 * structure was loaded */
+	void restoreView(){
+		if(viewingGraph){
+			GlobalAttributes.renderMode=2;
+		}
+	}
+	
+	/* Lets the user edit the limits on building the transition graph - a
+	 * blank field means no limit, and fields which are not valid numbers
+	 * leave their limit unchanged */
+	void editLimits(){
+		JTextField states=new JTextField(limitText(GlobalAttributes.maxStates));
+		JTextField depth=new JTextField(limitText(GlobalAttributes.maxDepth));
+		JTextField seconds=new JTextField(limitText(GlobalAttributes.maxSeconds));
+		JTextField memory=new JTextField(limitText(GlobalAttributes.maxMemory));
+		JPanel panel=new JPanel(new GridLayout(0,2,5,5));
+		panel.add(new JLabel("Maximum states"));
+		panel.add(states);
+		panel.add(new JLabel("Maximum events per state"));
+		panel.add(depth);
+		panel.add(new JLabel("Maximum time (seconds)"));
+		panel.add(seconds);
+		panel.add(new JLabel("Maximum memory (MB)"));
+		panel.add(memory);
+		if(JOptionPane.showConfirmDialog(MainWindow.global,panel,"Graph limits",
+				JOptionPane.OK_CANCEL_OPTION,JOptionPane.PLAIN_MESSAGE)!=JOptionPane.OK_OPTION){
+			return;
+		}
+		GlobalAttributes.maxStates=parseLimit(states.getText(),GlobalAttributes.maxStates,1);
+		GlobalAttributes.maxDepth=parseLimit(depth.getText(),GlobalAttributes.maxDepth,0);
+		GlobalAttributes.maxSeconds=parseLimit(seconds.getText(),GlobalAttributes.maxSeconds,0);
+		GlobalAttributes.maxMemory=parseLimit(memory.getText(),GlobalAttributes.maxMemory,1);
+	}
+	
+	/* Returns the text shown for a limit - blank if there is no limit */
+	static String limitText(int limit){
+		return limit==Integer.MAX_VALUE?"":Integer.toString(limit);
+	}
+	
+	/* Parses the text entered for a limit, returning the previous value if
+	 * it is not a number of at least the given minimum */
+	static int parseLimit(String text, int previous, int minimum){
+		if(text.trim().length()==0){
+			return Integer.MAX_VALUE;
+		}
+		try{
+			int limit=Integer.parseInt(text.trim());
+			if(limit>=minimum){
+				return limit;
+			}
+		}catch(NumberFormatException e){
+		}
+		OutputFrame.global.write("Invalid limit \""+text+"\" ignored");
+		return previous;
+	}
+	
+	/* Enables the execution control buttons once a structure or
+	 * circuit has been loaded */
+	void enableExecution(){
+	    start.setEnabled(true);
+	    reset.setEnabled(true);
+	    maxWait.setEnabled(true);
+	    randomSeed.setEnabled(true);
+	    checkbox.setEnabled(true);
+	}
+	
+	/* Disables the controls which could interfere with a file being loaded
+	 * in the background, or re-enables them once it has finished */
+	void setLoading(boolean loading){
+		load.setEnabled(!loading);
+		open.setEnabled(!loading);
+		mode.setEnabled(!loading);
+		inputArea.setEnabled(!loading);
+		checkbox.setEnabled(!loading);
+		if(loading){
+			start.setEnabled(false);
+			reset.setEnabled(false);
+		}
+	}
+	
+	/* Called by the FileLoader on the event dispatch thread just before the
+	 * loaded structure is replaced in the background - the positions and the
+	 * graph are cleared so that nothing of the old structure is drawn against
+	 * the new one while it is being loaded */
+	void clearDisplay(){
+		TransitionGraph.clearGraph();
+		GlobalAttributes.transitions=false;
+		view.setEnabled(false);
+		EventStructureRender.graphPositions=new int[0];
+		TransitionGraphRender.transitionPositions=new int[0];
+		GraphicsPanel.global.graphSelected=-1;
+		GraphicsPanel.global.repaint();
+	}
+
+	/* Called by the FileLoader on the event dispatch thread once the opened
+	 * file has been parsed and loaded - the definition is null if the file
+	 * could not be read or the user cancelled the loading */
+	void fileLoaded(Definition definition){
+		setLoading(false);
+		
+		/* Finish off the loaded structure in the same way as the input area */
+		if(definition!=null){
+			prepareLoaded();
+		}
+		
+		/* Otherwise the previous structure (if any) remains loaded */
+		else if(EventStructure.events.length>0){
+			enableExecution();
+		}
+	}
+	
+	/* Called whenever the text of the input area changes - unless the
+	 * change is a file preview being shown, the user has edited the
+	 * definition and the opened file is no longer used */
+	void inputEdited(){
+		if(!showingPreview && definitionFile!=null){
+			OutputFrame.global.write("Input edited - "+definitionFile.getName()+
+					" will no longer be loaded");
+			definitionFile=null;
+		}
+	}
+
     /* Item listener method for the two combo boxes (mode selection and circuit
      * selection) */
 	@Override
@@ -527,6 +869,7 @@ implements ActionListener, ItemListener{
 				 * circuit */
 				GlobalAttributes.renderMode=1;
 				Circuit.unload();
+				open.setEnabled(true);
 				
 				/* Hide, show, and re-organise the relevant labels
 				 * and buttons */
@@ -558,6 +901,7 @@ implements ActionListener, ItemListener{
 				 * event structure */
 				GlobalAttributes.renderMode=3;
 				EventStructure.unload();
+				open.setEnabled(false);
 				
 				/* Hide, show, and re-organise the relevant labels
 				 * and buttons */
@@ -0,0 +1,136 @@
+package GUI;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+
+import Model.Definition;
+import Model.EventStructure;
+import Model.MappedFileReader;
+import Model.ParseMonitor;
+import Model.Parser;
+
+/* Reads and parses an event structure definition from a file on a background
+ * thread, so that the window stays responsive however large the file is. The
+ * file is memory-mapped rather than copied into the input area, and a progress
+ * dialog (which only appears if the parse takes a while) allows the user to
+ * cancel. Once the file has been parsed, the event structure is loaded into
+ * memory on the same background thread, and only then is the definition
+ * handed back to the control panel on the event dispatch thread to lay out
+ * the visualisation */
+public class FileLoader extends SwingWorker<Definition,Long> implements ParseMonitor{
+
+	/* The number of characters of a file shown in the input area */
+	static final int PREVIEW_SIZE=65536;
+
+	/* The file being loaded and its length in bytes */
+	File file;
+	long length;
+
+	/* The dialog showing how much of the file has been read */
+	ProgressMonitor monitor;
+
+	/* The definition once its event structure has been loaded, which then
+	 * stands even if the user cancels too late to stop it */
+	volatile Definition loaded=null;
+
+	/* Creates a loader for the given file - call execute() to start it */
+	public FileLoader(File file){
+		this.file=file;
+		length=Math.max(1,file.length());
+		monitor=new ProgressMonitor(MainWindow.global,"Loading "+file.getName(),"",0,1000);
+	}
+
+	/* Parses the file and loads the event structure - this runs on a
+	 * background thread. Once the parse has finished the loading can no
+	 * longer be cancelled, as the previous structure is unloaded first. The
+	 * display is cleared on the event dispatch thread before then, as a
+	 * repaint would otherwise draw the old positions against the new events */
+	@Override
+	protected Definition doInBackground() throws IOException, InterruptedException, InvocationTargetException{
+		Definition definition;
+		MappedFileReader reader=new MappedFileReader(file);
+		try{
+			definition=Parser.parse(reader,this);
+		}
+		finally{
+			reader.close();
+		}
+		if(!isCancelled()){
+			SwingUtilities.invokeAndWait(new Runnable(){
+				@Override
+				public void run(){
+					ControlPanel.global.clearDisplay();
+				}
+			});
+			EventStructure.load(definition);
+			loaded=definition;
+		}
+		return definition;
+	}
+
+	/* Called by the parser after each block of the file - the progress is
+	 * passed on to the dialog on the event dispatch thread */
+	@Override
+	public void progress(long charactersRead){
+		publish(charactersRead);
+	}
+
+	/* Updates the dialog with the most recent progress, and cancels the
+	 * parse if the user has pressed the dialog's cancel button */
+	@Override
+	protected void process(List<Long> reports){
+		long read=reports.get(reports.size()-1);
+		monitor.setProgress((int)(read*1000/length));
+		monitor.setNote((read/1024)+" of "+(length/1024)+" KB read");
+		if(monitor.isCanceled()){
+			cancel(false);
+		}
+	}
+
+	/* Closes the dialog and passes the loaded definition (or null if the
+	 * file could not be loaded, reporting why) back to the control panel */
+	@Override
+	protected void done(){
+		monitor.close();
+		if(loaded==null){
+			if(isCancelled()){
+				OutputFrame.global.write("Loading of "+file.getName()+" cancelled");
+			}
+			else{
+				try{
+					get();
+				}catch(ExecutionException e){
+					OutputFrame.global.write("Unable to read "+file.getName()+": "+e.getCause().getMessage());
+				}catch(InterruptedException e){
+				}
+			}
+		}
+		ControlPanel.global.fileLoaded(loaded);
+	}
+
+	/* Returns the beginning of the given file, which is shown in the input
+	 * area in place of the whole of its contents */
+	static String preview(File file) throws IOException{
+		MappedFileReader reader=new MappedFileReader(file);
+		try{
+			char[] buffer=new char[(int)Math.min(PREVIEW_SIZE,reader.length())];
+			int read=0;
+			while(read<buffer.length){
+				int count=reader.read(buffer,read,buffer.length-read);
+				if(count<0){
+					break;
+				}
+				read+=count;
+			}
+			return new String(buffer,0,read);
+		}
+		finally{
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package GUI;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingWorker;
+
+import Main.GlobalAttributes;
+import Model.ExplorationBudget;
+import Model.ExplorationMonitor;
+import Model.StateGraph;
+import Model.TransitionGraph;
+
+/* Explores the transition graph of the loaded event structure on a background
+ * thread, within the limits set in GlobalAttributes, so that the window stays
+ * responsive however large the graph turns out to be. A progress dialog (which
+ * only appears if the exploration takes a while) shows the rate at which states
+ * are being found and how many are waiting to be expanded, and cancelling it
+ * stops the exploration early. Either way the graph found so far is handed back
+ * to the control panel on the event dispatch thread, marked as truncated if it
+ * is incomplete */
+public class GraphExplorer extends SwingWorker<StateGraph,GraphExplorer.Progress>{
+
+	/* A progress report passed from the exploration to the dialog */
+	static class Progress {
+		int states;
+		int frontier;
+		long elapsedMillis;
+	}
+
+	/* The limits on the exploration */
+	ExplorationBudget budget;
+
+	/* The dialog showing the progress of the exploration */
+	ProgressMonitor monitor;
+
+	/* Set once the user has cancelled the exploration - this stops the
+	 * exploration rather than cancelling the worker, so that the graph
+	 * found so far is still returned */
+	volatile boolean stopRequested=false;
+
+	/* Creates an explorer using the current limits - call execute() to start it */
+	public GraphExplorer(){
+		budget=limits();
+		budget.monitor=new ExplorationMonitor(){
+			@Override
+			public void progress(int states, int frontier, long elapsedMillis){
+				Progress progress=new Progress();
+				progress.states=states;
+				progress.frontier=frontier;
+				progress.elapsedMillis=elapsedMillis;
+				publish(progress);
+			}
+			@Override
+			public boolean isCancelled(){
+				return stopRequested;
+			}
+		};
+		monitor=new ProgressMonitor(MainWindow.global,"Building the transition graph","",0,1000);
+	}
+
+	/* Returns a budget holding the limits set in GlobalAttributes */
+	static ExplorationBudget limits(){
+		ExplorationBudget budget=new ExplorationBudget();
+		budget.maxStates=GlobalAttributes.maxStates;
+		budget.maxDepth=GlobalAttributes.maxDepth;
+		if(GlobalAttributes.maxSeconds!=Integer.MAX_VALUE){
+			budget.maxMillis=GlobalAttributes.maxSeconds*1000L;
+		}
+		if(GlobalAttributes.maxMemory!=Integer.MAX_VALUE){
+			budget.maxMemory=(long)GlobalAttributes.maxMemory<<20;
+		}
+		return budget;
+	}
+
+	/* Explores the graph - this runs on a background thread */
+	@Override
+	protected StateGraph doInBackground(){
+		return TransitionGraph.explore(TransitionGraph.PARALLEL,budget);
+	}
+
+	/* Updates the dialog with the most recent progress, which is measured
+	 * against whichever of the state and time limits is closer, and stops the
+	 * exploration if the user has pressed the dialog's cancel button */
+	@Override
+	protected void process(List<Progress> reports){
+		Progress progress=reports.get(reports.size()-1);
+		long done=1;
+		if(budget.maxStates!=Integer.MAX_VALUE){
+			done=Math.max(done,progress.states*1000L/budget.maxStates);
+		}
+		if(budget.maxMillis!=Long.MAX_VALUE){
+			done=Math.max(done,progress.elapsedMillis*1000/Math.max(1,budget.maxMillis));
+		}
+		monitor.setProgress((int)Math.min(done,999));
+		monitor.setNote(progress.states+" states ("+
+				(progress.states*1000L/Math.max(1,progress.elapsedMillis))+" per second), "+
+				progress.frontier+" waiting");
+		if(monitor.isCanceled()){
+			stopRequested=true;
+		}
+	}
+
+	/* Closes the dialog and passes the graph (or null if the exploration
+	 * failed) back to the control panel */
+	@Override
+	protected void done(){
+		monitor.close();
+		StateGraph graph=null;
+		try{
+			graph=get();
+		}catch(ExecutionException e){
+			OutputFrame.global.write("Unable to build the transition graph: "+e.getCause());
+		}catch(InterruptedException e){
+		}
+		ControlPanel.global.graphExplored(graph);
+	}
+}
@@ -86,7 +86,7 @@ public class GraphicsPanel extends JPanel implements MouseListener, MouseMotionL
 			/* If render mode is transition graph and one has been loaded, then delegate
 			 * rendering to the dedicated transition graph rendering class, while passing
 			 * the graphics handle */
-			else if(GlobalAttributes.renderMode==2 && TransitionGraph.nodes.size()>0){
+			else if(GlobalAttributes.renderMode==2 && TransitionGraph.graph.size()>0){
 				TransitionGraphRender.draw(g2, width, height);
 			}
 			
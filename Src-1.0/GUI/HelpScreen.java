@@ -61,7 +61,11 @@ public class HelpScreen extends JFrame{
         		"enables or conflict relations.\n");
         text.append("In Model mode, nodes can be dragged to new locations if their current " +
         		"location is inconvenient. \nNodes cannot be moved for the transition graph, as their locations are " +
-        		"always optimal.\nTransition graph generation is not recommended for large definitions.\n\n" );
+        		"always optimal.\nTransition graph generation is not recommended for large definitions - the graph " +
+        		"is built in the background and stops once it reaches the limits set under View > Graph limits, " +
+        		"leaving the graph incomplete. Its size is estimated first, and if it is likely to exceed the " +
+        		"state limit you are asked whether to build it. Alternatively, View > Expand graph on demand shows only the states " +
+        		"around the current run, which are worked out as the structure executes.\n\n" );
         text.append("In Circuit mode, the behaviour of the conflict resolution elements is as follows.\n\n");
         text.append("Standard:\tS0 = I1.O1.S1 + I2.O2.S2 \n\tS1 = I1.O1.S1 + I2.SBO2.S1 + SBI1.SBO1.S2\n");
         text.append("\tS2 = I2.O2.S2 + I1.SBO1.S2 + SBI2.SBO2.S1\n\nThis follows a first-come first-served policy ");
@@ -4,9 +4,12 @@ import java.awt.Dimension;
 import java.io.IOException;
 import javax.imageio.ImageIO;
 import javax.swing.JFrame;
+import javax.swing.JMenu;
+import javax.swing.JMenuBar;
 import javax.swing.JPanel;
 
 import Main.GlobalAttributes;
+import Model.EventStructure;
 
 /* Class for rendering the main program window - closing this frame
  * will end the program */
@@ -45,6 +48,20 @@ public class MainWindow extends JFrame{
         controls.setPreferredSize(new Dimension(300,400));
         main.add(controls,BorderLayout.LINE_START);
         
+        /* Set up the menu bar - the File menu allows a definition to be
+         * loaded from a file rather than typed into the input area, and the
+         * View menu controls how the structure is drawn */
+        JMenuBar menuBar=new JMenuBar();
+        JMenu file=new JMenu("File");
+        file.add(controls.open);
+        menuBar.add(file);
+        JMenu view=new JMenu("View");
+        view.add(controls.immediateConflicts);
+        view.add(controls.limits);
+        view.add(controls.lazyGraph);
+        menuBar.add(view);
+        this.setJMenuBar(menuBar);
+        
         /* Set up graphics pane - render target for the visualisation */
         graphics = new GraphicsPanel();
         main.add(graphics,BorderLayout.CENTER);
@@ -56,8 +73,10 @@ public class MainWindow extends JFrame{
         this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         this.pack();
         
-        /* Instantiate the console output window */
+        /* Instantiate the console output window, and send the event
+         * structure's commentary to the windows */
         new OutputFrame();
+        EventStructure.display=new WindowDisplay();
         
         /* Load the icon image into memory and store the data statically so that it
          * can be accessed by all frames */
@@ -0,0 +1,40 @@
+package GUI;
+
+import Main.GlobalAttributes;
+import Model.Display;
+import Model.TransitionGraph;
+
+/* Connects the event structure to the windows of the program - commentary is
+ * written to the console window, and the visualisation is repainted (and the
+ * transition graph trace followed) as the structure executes */
+public class WindowDisplay implements Display{
+
+	/* Writes the message to the console window */
+	@Override
+	public void write(String message){
+		OutputFrame.global.write(message);
+	}
+
+	/* Follows the completed event in the transition graph trace and
+	 * repaints the visualisation */
+	@Override
+	public void eventCompleted(int event){
+		
+		/* Only perform execution trace if we are in transition graph
+		 * mode */
+		if(GlobalAttributes.transitions){
+			TransitionGraph.updateTrace(event);
+		}
+		GraphicsPanel.global.repaint();
+	}
+
+	/* Resets the transition graph trace if one exists and repaints
+	 * the visualisation */
+	@Override
+	public void reset(){
+		if(GlobalAttributes.transitions){
+			TransitionGraph.resetTrace();
+		}
+		GraphicsPanel.global.repaint();
+	}
+}
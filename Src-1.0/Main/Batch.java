@@ -0,0 +1,774 @@
+package Main;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import Model.ConfigurationCount;
+import Model.ConfigurationIndex;
+import Model.ConfigurationStream;
+import Model.Definition;
+import Model.Display;
+import Model.EventRelations;
+import Model.EventSet;
+import Model.EventSymmetry;
+import Model.EventStructure;
+import Model.ExplorationBudget;
+import Model.ExplorationMonitor;
+import Model.Linearisations;
+import Model.MappedFileReader;
+import Model.MaximalConfigurations;
+import Model.OffHeapStateStore;
+import Model.Parser;
+import Model.PrefixStateStore;
+import Model.ReducedStateSpace;
+import Model.Relation;
+import Model.Simulation;
+import Model.SpillingStateStore;
+import Model.StateGraph;
+import Model.StateSpaceEstimate;
+import Model.StateStore;
+import Model.SymbolicConfigurations;
+import Model.SymmetricStateSpace;
+import Model.TransitionGraph;
+
+/* Command-line entry point which analyses an event structure definition file
+ * without a display, e.g. on a build server. Nothing from the GUI (nor
+ * GlobalAttributes, which holds AWT resources) is ever touched, so AWT is
+ * never initialised and many instances can run side by side. The results are
+ * written as a single JSON object - this class is never instantiated */
+public class Batch {
+
+	/* Exit statuses */
+	static final int SUCCESS=0;
+	static final int FAILED=1;
+	static final int USAGE=2;
+
+	/* Usage message written when the arguments are not understood */
+	static final String usage=
+			"Usage: java Main.Batch <definition file> [options]\n"+
+			"  --count            count the states, transitions and maximal configurations\n"+
+			"  --graph            as --count, and also export the whole transition graph\n"+
+			"  --order <order>    build the graph dfs, bfs or parallel (default parallel)\n"+
+			"  --estimate         estimate the states, transitions and states of each level\n"+
+			"                     from random probes, with 95% confidence intervals\n"+
+			"  --estimate-millis <n>\n"+
+			"                     milliseconds spent on the estimate (default 1000)\n"+
+			"  --refuse-above <n> estimate the states first, and do not build the graph\n"+
+			"                     for --count or --graph if there are more than n\n"+
+			"  --max-states <n>   stop exploring the graph once it has n states\n"+
+			"  --max-depth <n>    do not explore states with more than n events\n"+
+			"  --max-seconds <n>  stop exploring the graph after n seconds\n"+
+			"  --max-memory <n>   stop exploring the graph once n MB of heap are in use\n"+
+			"  --store <store>    keep the explored states on the heap, offheap (in\n"+
+			"                     direct memory), spill (to disk) or prefix (as each\n"+
+			"                     state's parent and added event, which cannot be used\n"+
+			"                     with --symmetry) (default heap)\n"+
+			"  --spill-dir <dir>  directory for spilled states (default the system's\n"+
+			"                     temporary directory)\n"+
+			"  --spill-after <n>  MB of states to keep in memory when spilling (default 256)\n"+
+			"  --configurations   list every reachable configuration as it is found,\n"+
+			"                     without building the graph (dfs unless --order bfs)\n"+
+			"  --maximal          list the maximal configurations as they are found, without\n"+
+			"                     building the graph (in no particular order unless\n"+
+			"                     --order dfs or bfs; --max-states limits how many)\n"+
+			"  --reduced          list the maximal configurations and the events which can\n"+
+			"                     never complete, exploring only one order of concurrent\n"+
+			"                     events (within the same limits and store as the graph;\n"+
+			"                     if truncated, lists the events not yet reached instead)\n"+
+			"  --symmetry         list the classes of interchangeable events and the number\n"+
+			"                     of other symmetries, and count the full state space\n"+
+			"                     exploring one state per orbit, with the number of\n"+
+			"                     states of each orbit size (within the same limits\n"+
+			"                     and store as the graph, other than prefix)\n"+
+			"  --symbolic         count the states of each level and find the events which\n"+
+			"                     can never complete from a decision diagram of the\n"+
+			"                     configurations (--max-states limits the nodes created\n"+
+			"                     while building it)\n"+
+			"  --decompose        count the states of each level over a tree decomposition\n"+
+			"                     of the causes and conflicts (--max-states limits the\n"+
+			"                     entries of each table)\n"+
+			"  --relations        count the concurrent and conflicting pairs of events and\n"+
+			"                     list the immediate conflicts\n"+
+			"  --linearisations   count the runs reaching each maximal configuration and\n"+
+			"                     all complete runs, over the graph (within its limits)\n"+
+			"  --simulate <n>     perform n random runs of the structure\n"+
+			"  --uniform          choose the random runs uniformly among all complete runs\n"+
+			"                     over the graph, rather than an event at each step\n"+
+			"  --seed <seed>      seed for the random runs and probes (default 11111111)\n"+
+			"  --output <file>    write the results to a file rather than standard output\n"+
+			"  --verbose          write the loading commentary to standard error\n"+
+			"The exit status is 0 on success, 1 if the file could not be read, contains\n"+
+			"errors or is not a valid event structure, and 2 if the arguments are invalid";
+
+	/* The options given on the command line */
+	static String input=null;
+	static String output=null;
+	static boolean count=false;
+	static boolean graph=false;
+	static boolean relations=false;
+	static boolean reduced=false;
+	static boolean maximal=false;
+	static boolean configurations=false;
+	static boolean symmetry=false;
+	static boolean symbolic=false;
+	static boolean decompose=false;
+	static int order=TransitionGraph.PARALLEL;
+	static boolean estimate=false;
+	static long estimateMillis=1000;
+	static long refuseAbove=-1;
+	static ExplorationBudget budget=new ExplorationBudget();
+	static String store="heap";
+	static String spillDirectory=System.getProperty("java.io.tmpdir");
+	static long spillAfter=256;
+	static boolean linearisations=false;
+	static int runs=0;
+	static boolean uniform=false;
+	static long seed=11111111;
+	static boolean verbose=false;
+
+	/* The transition graph and the counts of its runs, built when first
+	 * needed and then shared between the analyses */
+	static StateGraph built=null;
+	static Linearisations counted=null;
+
+	/* Main method for the JVM to execute */
+	public static void main(String[] args){
+		System.exit(run(args));
+	}
+
+	/* Performs the analysis described by the arguments and returns the
+	 * exit status */
+	public static int run(String[] args){
+
+		/* Make sure that nothing can open a window */
+		System.setProperty("java.awt.headless","true");
+
+		if(!parseArguments(args)){
+			System.err.println(usage);
+			return USAGE;
+		}
+
+		/* Send the loading commentary to standard error if requested */
+		if(verbose){
+			budget.monitor=new ExplorationMonitor(){
+				long reported=0;
+				@Override
+				public void progress(int states, int frontier, long elapsedMillis){
+					if(elapsedMillis-reported<1000){
+						return;
+					}
+					reported=elapsedMillis;
+					System.err.println("Explored "+states+" states ("+
+							(states*1000L/Math.max(1,elapsedMillis))+" per second), "+frontier+" waiting");
+				}
+				@Override
+				public boolean isCancelled(){
+					return false;
+				}
+			};
+			EventStructure.display=new Display(){
+				@Override
+				public void write(String message){
+					System.err.println(message);
+				}
+				@Override
+				public void eventCompleted(int event){
+				}
+				@Override
+				public void reset(){
+				}
+			};
+		}
+
+		/* Parse the definition file */
+		Definition definition;
+		try{
+			MappedFileReader reader=new MappedFileReader(new File(input));
+			try{
+				definition=Parser.parse(reader);
+			}
+			finally{
+				reader.close();
+			}
+		}catch(IOException e){
+			System.err.println("Unable to read "+input+": "+e.getMessage());
+			return FAILED;
+		}
+
+		/* Load the structure without any threads - a structure which fails
+		 * validation is reported along with the parser's errors */
+		boolean valid=EventStructure.load(definition,false);
+
+		/* Write the results */
+		PrintWriter out;
+		try{
+			out=new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+					output==null?System.out:new FileOutputStream(output),"UTF-8")));
+		}catch(IOException e){
+			System.err.println("Unable to write "+output+": "+e.getMessage());
+			return FAILED;
+		}
+		out.print("{\n  \"file\": "+quote(input)+",\n  \"events\": "+definition.size());
+		out.print(",\n  \"errors\": [");
+		for(int i=0;i<definition.errors.size();i++){
+			out.print((i>0?", ":"")+quote(definition.errors.get(i)));
+		}
+		out.print("]");
+		out.print(",\n  \"valid\": "+valid);
+		if(!valid){
+			out.print("\n}\n");
+			out.close();
+			return FAILED;
+		}
+		if(relations){
+			writeRelations(out);
+		}
+		StateSpaceEstimate estimated=null;
+		if(estimate || refuseAbove>=0){
+			estimated=StateSpaceEstimate.estimate(estimateMillis,Integer.MAX_VALUE,new Random(seed));
+			writeEstimate(out,estimated);
+		}
+		if(count || graph){
+			if(refuseAbove>=0 && estimated.states()>refuseAbove){
+				out.print(",\n  \"graphRefused\": "+quote("An estimated "+Math.round(estimated.states())+
+						" states, above the limit of "+refuseAbove));
+			}
+			else{
+				writeGraph(out);
+			}
+		}
+		if(configurations){
+			writeConfigurations(out);
+		}
+		if(maximal){
+			writeMaximal(out);
+		}
+		if(reduced){
+			writeReduced(out);
+		}
+		if(symmetry){
+			writeSymmetric(out);
+		}
+		if(symbolic){
+			writeSymbolic(out);
+		}
+		if(decompose){
+			writeDecomposed(out);
+		}
+		if(linearisations){
+			writeLinearisations(out);
+		}
+		if(runs>0){
+			writeRuns(out);
+		}
+		out.print("\n}\n");
+		out.close();
+		if(out.checkError()){
+			System.err.println("Unable to write the results");
+			return FAILED;
+		}
+		return definition.errors.isEmpty()?SUCCESS:FAILED;
+	}
+
+	/* Reads the options from the arguments - returns false if they are invalid */
+	static boolean parseArguments(String[] args){
+		try{
+			for(int i=0;i<args.length;i++){
+				if(args[i].equals("--count")){
+					count=true;
+				}
+				else if(args[i].equals("--graph")){
+					graph=true;
+				}
+				else if(args[i].equals("--relations")){
+					relations=true;
+				}
+				else if(args[i].equals("--maximal")){
+					maximal=true;
+				}
+				else if(args[i].equals("--reduced")){
+					reduced=true;
+				}
+				else if(args[i].equals("--configurations")){
+					configurations=true;
+				}
+				else if(args[i].equals("--symmetry")){
+					symmetry=true;
+				}
+				else if(args[i].equals("--symbolic")){
+					symbolic=true;
+				}
+				else if(args[i].equals("--decompose")){
+					decompose=true;
+				}
+				else if(args[i].equals("--estimate")){
+					estimate=true;
+				}
+				else if(args[i].equals("--estimate-millis")){
+					estimateMillis=Long.parseLong(args[++i]);
+				}
+				else if(args[i].equals("--refuse-above")){
+					refuseAbove=Long.parseLong(args[++i]);
+				}
+				else if(args[i].equals("--order")){
+					String name=args[++i];
+					if(name.equals("dfs")){
+						order=TransitionGraph.DEPTH_FIRST;
+					}
+					else if(name.equals("bfs")){
+						order=TransitionGraph.BREADTH_FIRST;
+					}
+					else if(name.equals("parallel")){
+						order=TransitionGraph.PARALLEL;
+					}
+					else{
+						return false;
+					}
+				}
+				else if(args[i].equals("--max-states")){
+					budget.maxStates=Integer.parseInt(args[++i]);
+				}
+				else if(args[i].equals("--max-depth")){
+					budget.maxDepth=Integer.parseInt(args[++i]);
+				}
+				else if(args[i].equals("--max-seconds")){
+					budget.maxMillis=Long.parseLong(args[++i])*1000;
+				}
+				else if(args[i].equals("--max-memory")){
+					budget.maxMemory=Long.parseLong(args[++i])<<20;
+				}
+				else if(args[i].equals("--store")){
+					store=args[++i];
+					if(!store.equals("heap") && !store.equals("offheap") && !store.equals("spill")
+							&& !store.equals("prefix")){
+						return false;
+					}
+				}
+				else if(args[i].equals("--spill-dir")){
+					spillDirectory=args[++i];
+				}
+				else if(args[i].equals("--spill-after")){
+					spillAfter=Long.parseLong(args[++i]);
+				}
+				else if(args[i].equals("--linearisations")){
+					linearisations=true;
+				}
+				else if(args[i].equals("--uniform")){
+					uniform=true;
+				}
+				else if(args[i].equals("--simulate")){
+					runs=Integer.parseInt(args[++i]);
+				}
+				else if(args[i].equals("--seed")){
+					seed=Long.parseLong(args[++i]);
+				}
+				else if(args[i].equals("--output")){
+					output=args[++i];
+				}
+				else if(args[i].equals("--verbose")){
+					verbose=true;
+				}
+				else if(!args[i].startsWith("--") && input==null){
+					input=args[i];
+				}
+				else{
+					return false;
+				}
+			}
+		}catch(ArrayIndexOutOfBoundsException e){
+			return false;
+		}catch(NumberFormatException e){
+			return false;
+		}
+		/* The symmetric exploration records representatives which are not their
+		 * parent plus an event, which the prefix store cannot hold */
+		return input!=null && runs>=0 && budget.maxStates>0 && budget.maxDepth>=0 &&
+				budget.maxMillis>=0 && budget.maxMemory>=0 && spillAfter>=0 &&
+				!(symmetry && store.equals("prefix"));
+	}
+
+	/* Builds the transition graph within the budget and writes its
+	 * statistics, and the graph itself if it was requested */
+	static void writeGraph(PrintWriter out){
+		long time=System.currentTimeMillis();
+		StateGraph explored=graph();
+		time=System.currentTimeMillis()-time;
+
+		/* Count the maximal configurations (the nodes from which no event
+		 * can be completed) - if the graph is truncated, only those which
+		 * were expanded are known to be maximal */
+		int maximal=0;
+		for(int i=0;i<explored.size();i++){
+			if(explored.degree(i)==0 && explored.isExpanded(i)){
+				maximal++;
+			}
+		}
+		out.print(",\n  \"truncated\": "+explored.isTruncated());
+		if(explored.isTruncated()){
+			out.print(",\n  \"truncation\": "+quote(explored.truncation()));
+		}
+		out.print(",\n  \"states\": "+explored.size());
+		out.print(",\n  \"transitions\": "+explored.transitions());
+		out.print(",\n  \"maximal\": "+maximal);
+		out.print(",\n  \"levels\": [");
+		for(int i=0;i<explored.levels();i++){
+			out.print((i>0?", ":"")+explored.levelSize(i));
+		}
+		out.print("]");
+		out.print(",\n  \"buildMilliseconds\": "+time);
+
+		/* The nodes are listed in ID order as their sets of events, and each
+		 * transition as [source ID, event, target ID], followed by the IDs of
+		 * any nodes left unexpanded */
+		if(graph){
+			out.print(",\n  \"graph\": {\n    \"nodes\": [");
+			for(int i=0;i<explored.size();i++){
+				out.print((i>0?",":"")+"\n      ");
+				writeEvents(out,explored.events(i));
+			}
+			out.print("\n    ],\n    \"transitions\": [");
+			boolean first=true;
+			for(int i=0;i<explored.size();i++){
+				for(int j=0;j<explored.degree(i);j++){
+					out.print((first?"":",")+"\n      ["+i+", "+
+							quote(EventStructure.events[explored.label(i,j)])+", "+
+							explored.target(i,j)+"]");
+					first=false;
+				}
+			}
+			out.print("\n    ]");
+			if(explored.isTruncated()){
+				out.print(",\n    \"unexpanded\": [");
+				first=true;
+				for(int i=0;i<explored.size();i++){
+					if(!explored.isExpanded(i)){
+						out.print((first?"":", ")+i);
+						first=false;
+					}
+				}
+				out.print("]");
+			}
+			out.print("\n  }");
+		}
+	}
+
+	/* Writes the estimated size of the graph, each figure with its 95%
+	 * confidence interval */
+	static void writeEstimate(PrintWriter out, StateSpaceEstimate estimated){
+		out.print(",\n  \"estimate\": {\n    \"probes\": "+estimated.probes());
+		out.print(",\n    \"estimateMilliseconds\": "+estimated.millis());
+		out.print(",\n    \"states\": ");
+		writeInterval(out,estimated.states(),estimated.stateInterval());
+		out.print(",\n    \"transitions\": ");
+		writeInterval(out,estimated.transitions(),estimated.transitionInterval());
+		out.print(",\n    \"levels\": [");
+		for(int i=0;i<estimated.levels();i++){
+			out.print((i>0?",":"")+"\n      ");
+			writeInterval(out,estimated.levelSize(i),estimated.levelInterval(i));
+		}
+		out.print("\n    ]\n  }");
+	}
+
+	/* Writes an estimate with the ends of its confidence interval */
+	static void writeInterval(PrintWriter out, double value, double[] interval){
+		out.print("{\"estimate\": "+value+", \"low\": "+interval[0]+", \"high\": "+interval[1]+"}");
+	}
+
+	/* Writes every reachable configuration, streaming them from the event
+	 * structure so that no more than the configurations waiting to be
+	 * expanded are ever held, followed by how many there were */
+	static void writeConfigurations(final PrintWriter out){
+		final long[] count={0};
+		out.print(",\n  \"configurations\": [");
+		ConfigurationStream.configurations(order).forEach(new Consumer<long[]>(){
+			@Override
+			public void accept(long[] configuration){
+				out.print((count[0]++>0?",":"")+"\n    ");
+				int[] events=new int[EventSet.size(configuration)];
+				for(int i=0,e=EventSet.next(configuration,0);e!=-1;e=EventSet.next(configuration,e+1)){
+					events[i++]=e;
+				}
+				writeEvents(out,events);
+			}
+		});
+		out.print("\n  ]");
+		out.print(",\n  \"configurationCount\": "+count[0]);
+	}
+
+	/* Writes every maximal configuration as it is found, searching in
+	 * parallel for the parallel order, followed by how many there were */
+	static void writeMaximal(final PrintWriter out){
+		long time=System.currentTimeMillis();
+		out.print(",\n  \"maximalConfigurations\": [");
+		long found=MaximalConfigurations.enumerate(new Consumer<long[]>(){
+			boolean first=true;
+			@Override
+			public void accept(long[] configuration){
+				out.print((first?"":",")+"\n    ");
+				first=false;
+				int[] events=new int[EventSet.size(configuration)];
+				for(int i=0,e=EventSet.next(configuration,0);e!=-1;e=EventSet.next(configuration,e+1)){
+					events[i++]=e;
+				}
+				writeEvents(out,events);
+			}
+		},order==TransitionGraph.PARALLEL,budget);
+		time=System.currentTimeMillis()-time;
+		out.print("\n  ]");
+		out.print(",\n  \"maximalTruncated\": "+(budget.truncation()!=null));
+		if(budget.truncation()!=null){
+			out.print(",\n  \"maximalTruncation\": "+quote(budget.truncation()));
+		}
+		out.print(",\n  \"maximalCount\": "+found);
+		out.print(",\n  \"searchMilliseconds\": "+time);
+	}
+
+	/* Explores the reduced state space within the budget, and writes the
+	 * maximal configurations found and the events in none of them - if the
+	 * exploration is truncated, those events are only the ones not reached
+	 * so far, so they are written as notReached rather than unreachable */
+	static void writeReduced(PrintWriter out){
+		long time=System.currentTimeMillis();
+		ReducedStateSpace space=ReducedStateSpace.explore(budget,createStore());
+		time=System.currentTimeMillis()-time;
+		out.print(",\n  \"reduced\": {\n    \"truncated\": "+space.isTruncated());
+		if(space.isTruncated()){
+			out.print(",\n    \"truncation\": "+quote(space.truncation()));
+		}
+		out.print(",\n    \"states\": "+space.size());
+		out.print(",\n    \"transitions\": "+space.transitions());
+		out.print(",\n    \"exploreMilliseconds\": "+time);
+		out.print(",\n    \"maximal\": [");
+		for(int i=0;i<space.maximalCount();i++){
+			out.print((i>0?",":"")+"\n      ");
+			writeEvents(out,space.maximalEvents(i));
+		}
+		out.print("\n    ],\n    "+(space.isTruncated()?"\"notReached\"":"\"unreachable\"")+": [");
+		boolean first=true;
+		for(int i=0;i<EventStructure.events.length;i++){
+			if(!space.isReachable(i)){
+				out.print((first?"":", ")+quote(EventStructure.events[i]));
+				first=false;
+			}
+		}
+		out.print("]\n  }");
+	}
+
+	/* Writes the classes of interchangeable events and the number of other
+	 * symmetries found, then explores one state per orbit within the budget
+	 * and writes the counts of the full state space and the number of
+	 * representatives of each orbit size */
+	static void writeSymmetric(PrintWriter out){
+		EventSymmetry symmetry=EventStructure.symmetry;
+		out.print(",\n  \"symmetry\": {\n    \"classes\": [");
+		for(int c=0;c<symmetry.classes();c++){
+			out.print((c>0?",":"")+"\n      {\"conflicting\": "+symmetry.isConflicting(c)+", \"events\": ");
+			writeEvents(out,symmetry.members(c));
+			out.print("}");
+		}
+		out.print("\n    ],\n    \"automorphisms\": "+symmetry.automorphisms());
+		out.print(",\n    \"automorphismsComplete\": "+symmetry.isComplete());
+		out.print(",\n    \"groupOrder\": "+symmetry.groupOrder());
+		long time=System.currentTimeMillis();
+		SymmetricStateSpace space=SymmetricStateSpace.explore(budget,createStore());
+		time=System.currentTimeMillis()-time;
+		out.print(",\n    \"truncated\": "+space.isTruncated());
+		if(space.isTruncated()){
+			out.print(",\n    \"truncation\": "+quote(space.truncation()));
+		}
+		out.print(",\n    \"representatives\": "+space.representatives());
+		out.print(",\n    \"states\": "+space.states());
+		out.print(",\n    \"transitions\": "+space.transitions());
+		out.print(",\n    \"maximal\": "+space.maximal());
+		out.print(",\n    \"exploreMilliseconds\": "+time);
+		out.print(",\n    \"orbitSizes\": [");
+		boolean first=true;
+		for(Map.Entry<BigInteger,Integer> orbit:space.orbitSizes().entrySet()){
+			out.print((first?"":", ")+"{\"size\": "+orbit.getKey()+", \"representatives\": "+orbit.getValue()+"}");
+			first=false;
+		}
+		out.print("]\n  }");
+	}
+
+	/* Builds the decision diagram of the configurations within the budget,
+	 * and writes the number of states of each level and the events in none
+	 * of them, all answered from the diagram */
+	static void writeSymbolic(PrintWriter out){
+		long time=System.currentTimeMillis();
+		SymbolicConfigurations diagram=SymbolicConfigurations.build(budget);
+		time=System.currentTimeMillis()-time;
+		out.print(",\n  \"symbolic\": {\n    \"truncated\": "+(diagram==null));
+		if(diagram==null){
+			out.print(",\n    \"truncation\": "+quote(budget.truncation())+"\n  }");
+			return;
+		}
+		out.print(",\n    \"nodes\": "+diagram.size());
+		out.print(",\n    \"states\": "+diagram.count());
+		out.print(",\n    \"buildMilliseconds\": "+time);
+		out.print(",\n    \"levels\": [");
+		BigInteger[] levels=diagram.levelCounts();
+		for(int i=0;i<levels.length;i++){
+			out.print((i>0?", ":"")+levels[i]);
+		}
+		out.print("],\n    \"unreachable\": [");
+		boolean first=true;
+		long[] possible=diagram.possibleEvents();
+		for(int i=0;i<EventStructure.events.length;i++){
+			if(!EventSet.contains(possible,i)){
+				out.print((first?"":", ")+quote(EventStructure.events[i]));
+				first=false;
+			}
+		}
+		out.print("]\n  }");
+	}
+
+	/* Counts the configurations of each size over a tree decomposition
+	 * within the budget, and writes the counts with the width used */
+	static void writeDecomposed(PrintWriter out){
+		long time=System.currentTimeMillis();
+		ConfigurationCount count=ConfigurationCount.count(budget);
+		time=System.currentTimeMillis()-time;
+		out.print(",\n  \"decomposition\": {\n    \"truncated\": "+count.isTruncated());
+		if(count.isTruncated()){
+			out.print(",\n    \"truncation\": "+quote(count.truncation())+"\n  }");
+			return;
+		}
+		out.print(",\n    \"width\": "+count.width());
+		out.print(",\n    \"states\": "+count.total());
+		out.print(",\n    \"countMilliseconds\": "+time);
+		out.print(",\n    \"levels\": [");
+		BigInteger[] levels=count.levelCounts();
+		for(int i=0;i<levels.length;i++){
+			out.print((i>0?", ":"")+levels[i]);
+		}
+		out.print("]\n  }");
+	}
+
+	/* Returns an empty state store of the requested kind for the loaded structure */
+	static StateStore createStore(){
+		int events=EventStructure.events.length;
+		if(store.equals("offheap")){
+			return new OffHeapStateStore(events);
+		}
+		if(store.equals("spill")){
+			return new SpillingStateStore(events,new File(spillDirectory),spillAfter<<20);
+		}
+		if(store.equals("prefix")){
+			return new PrefixStateStore(events);
+		}
+		return new ConfigurationIndex(events);
+	}
+
+	/* Writes the number of pairs of events in each relationship, and the
+	 * immediate conflicts as pairs of event names */
+	static void writeRelations(PrintWriter out){
+		EventRelations analysis=EventStructure.relations;
+		out.print(",\n  \"concurrentPairs\": "+analysis.concurrentPairs());
+		out.print(",\n  \"conflictPairs\": "+analysis.conflictPairs());
+		out.print(",\n  \"immediateConflicts\": [");
+		Relation immediate=analysis.immediateConflicts();
+		boolean first=true;
+		for(int a=0;a<immediate.size();a++){
+			for(int b=immediate.next(a,a+1);b!=-1;b=immediate.next(a,b+1)){
+				out.print((first?"":", ")+"["+quote(EventStructure.events[a])+", "+
+						quote(EventStructure.events[b])+"]");
+				first=false;
+			}
+		}
+		out.print("]");
+	}
+
+	/* Performs the random runs and writes the events of each in the order
+	 * that they were completed */
+	static void writeRuns(PrintWriter out){
+		Random random=new Random(seed);
+		out.print(",\n  \"seed\": "+seed);
+		out.print(",\n  \"runs\": [");
+		for(int i=0;i<runs;i++){
+			int[] run=uniform?linearisations().sample(random):Simulation.run(random).toArray();
+			if(run==null){
+				break;
+			}
+			out.print((i>0?",":"")+"\n    ");
+			writeEvents(out,run);
+		}
+		out.print("\n  ]");
+	}
+
+	/* Writes the number of complete runs and, for each maximal
+	 * configuration, the number of runs which end in it */
+	static void writeLinearisations(PrintWriter out){
+		graph();
+		long time=System.currentTimeMillis();
+		Linearisations counts=linearisations();
+		time=System.currentTimeMillis()-time;
+		StateGraph graph=counts.graph();
+		out.print(",\n  \"linearisations\": {\n    \"truncated\": "+graph.isTruncated());
+		if(graph.isTruncated()){
+			out.print(",\n    \"truncation\": "+quote(graph.truncation()));
+		}
+		out.print(",\n    \"completeRuns\": "+counts.runs());
+		out.print(",\n    \"countMilliseconds\": "+time);
+		out.print(",\n    \"maximal\": [");
+		for(int i=0;i<counts.maximalCount();i++){
+			int state=counts.maximal(i);
+			out.print((i>0?",":"")+"\n      {\"runs\": "+counts.reaching(state)+", \"events\": ");
+			writeEvents(out,graph.events(state));
+			out.print("}");
+		}
+		out.print("\n    ]\n  }");
+	}
+
+	/* Returns the transition graph, building it within the budget the
+	 * first time */
+	static StateGraph graph(){
+		if(built==null){
+			built=TransitionGraph.explore(order,budget,createStore());
+		}
+		return built;
+	}
+
+	/* Returns the counts of the runs of the transition graph, counting
+	 * them the first time */
+	static Linearisations linearisations(){
+		if(counted==null){
+			counted=new Linearisations(graph());
+		}
+		return counted;
+	}
+
+	/* Writes a list of event IDs as an array of event names */
+	static void writeEvents(PrintWriter out, int[] list){
+		out.print("[");
+		for(int i=0;i<list.length;i++){
+			out.print((i>0?", ":"")+quote(EventStructure.events[list[i]]));
+		}
+		out.print("]");
+	}
+
+	/* Returns the given text as a JSON string literal */
+	static String quote(String text){
+		StringBuilder string=new StringBuilder("\"");
+		for(int i=0;i<text.length();i++){
+			char character=text.charAt(i);
+			if(character=='"' || character=='\\'){
+				string.append('\\').append(character);
+			}
+			else if(character<0x20 || character>0x7e){
+				string.append(String.format("\\u%04x",(int)character));
+			}
+			else{
+				string.append(character);
+			}
+		}
+		return string.append('"').toString();
+	}
+}
@@ -42,6 +42,26 @@ public class GlobalAttributes {
      */
     public static boolean transitions=false;
     
+    /* Flag which hides the conflicts which are inherited from the conflicts
+     * of other events, so that only immediate conflicts are drawn
+     */
+    public static boolean immediateConflictsOnly=false;
+    
+    /* Flag which shows the transition graph around the current run, expanding
+     * it as the structure executes, rather than building it in full at load
+     */
+    public static boolean lazyGraph=false;
+    
+    /* The limits on building the transition graph - Integer.MAX_VALUE means
+     * no limit. The graph is left incomplete once it has this many states, has
+     * taken this many seconds or the heap in use reaches this many megabytes,
+     * and states with more than the maximum depth of events are not expanded.
+     * By default a quarter of the heap is kept free for everything else */
+    public static int maxStates=10000;
+    public static int maxDepth=Integer.MAX_VALUE;
+    public static int maxSeconds=60;
+    public static int maxMemory=(int)Math.min(Runtime.getRuntime().maxMemory()/4*3>>20,Integer.MAX_VALUE);
+    
     /* The icon data for the program - loaded immediately */
     public static BufferedImage icon;
     
@@ -11,6 +11,12 @@ public class Main {
 	/* Main method for the JVM to execute */
     public static void main(String[] args){
     	
+    	/* If any arguments are given then analyse the given file
+    	 * without a display - see Batch */
+    	if(args.length>0){
+    		System.exit(Batch.run(args));
+    	}
+    	
     	/* Spawns the main window - program is blocked from
     	 * halting until this window is closed
     	 */
@@ -0,0 +1,262 @@
+package Model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/* The transitive closures of the relations of an event structure. For every
+ * event this gives the set of all of its causes (the events which must precede
+ * it, directly or indirectly), the set of all of its consequences (the events
+ * which it must precede) and the set of all events it is in conflict with once
+ * conflicts are inherited - an event is in conflict with everything which
+ * follows an event it conflicts with, and inherits the conflicts of all of its
+ * causes.
+ * The inherited conflicts are computed once when the structure is loaded, as
+ * every completed event needs its row, by propagating bitsets (see EventSet)
+ * along the causality relation in topological order, so every row is formed
+ * from the already finished rows of its direct causes a word at a time. Rows
+ * which turn out to be empty are not stored, so a structure with few conflicts
+ * takes little memory.
+ * The causes and consequences are only worked out when they are asked for,
+ * because even a sparse causality relation can have a dense closure - a chain
+ * of n events has n*n/2 pairs of cause and consequence. Each row is found by
+ * walking the relation from the event, taking in the whole row of any event
+ * reached whose row is already known, and is kept in a cache of bounded size,
+ * least recently used first out, so the rows asked for repeatedly are not
+ * walked again */
+public class CausalClosure {
+
+	/* The most words of rows of causes and of consequences cached */
+	static final int CACHE_WORDS=1<<21;
+
+	/* The number of events */
+	int size;
+
+	/* The direct causes and direct consequences of each event */
+	Relation succeeds;
+	Relation precedes;
+
+	/* The recently used rows of causes and consequences */
+	LinkedHashMap<Integer,long[]> causes;
+	LinkedHashMap<Integer,long[]> consequences;
+
+	/* The inherited conflicts of each event - a null row is empty */
+	long[][] conflicts;
+
+	/* The events in an order in which every event comes after all of its
+	 * causes - if the causality relation contains a cycle, the events on or
+	 * after the cycle are appended in index order */
+	int[] order;
+
+	/* The place of each event in the order */
+	int[] position;
+
+	/* Set if the causality relation is free of cycles */
+	boolean acyclic;
+
+	/* A shared empty row, returned for events whose row is empty */
+	long[] none;
+
+	/* The stack of the walks which find rows of causes and consequences -
+	 * each event is pushed at most once, apart from the one walked from */
+	int[] stack;
+
+	/* Computes the closures of the given relations - succeeds must be
+	 * the reverse of precedes */
+	public CausalClosure(Relation precedes, Relation succeeds, Relation conflicting){
+		size=precedes.size();
+		this.precedes=precedes;
+		this.succeeds=succeeds;
+		none=EventSet.create(size);
+		stack=new int[size+1];
+		causes=cache();
+		consequences=cache();
+		conflicts=new long[size][];
+		sort(precedes,succeeds);
+
+		/* An event is in conflict with every event it directly conflicts
+		 * with and every consequence of those events, and then inherits the
+		 * conflicts of its direct causes (which already include theirs) -
+		 * with a cycle, the passes are repeated until nothing changes (as
+		 * the rows of a cycle can only grow this terminates) */
+		for(int i=0;i<size;i++){
+			int event=order[i];
+			long[] row=null;
+			for(int j=conflicting.next(event,0);j!=-1;j=conflicting.next(event,j+1)){
+				if(row==null){
+					row=EventSet.create(size);
+				}
+				EventSet.add(row,j);
+				EventSet.addAll(row,consequences(j));
+			}
+			conflicts[event]=row;
+		}
+		boolean changed=true;
+		while(changed){
+			changed=false;
+			for(int i=0;i<size;i++){
+				changed|=propagate(conflicts,order[i],succeeds);
+			}
+			changed&=!acyclic;
+		}
+	}
+
+	/* Returns an empty cache of rows, which holds at most CACHE_WORDS words
+	 * (but always some rows) */
+	LinkedHashMap<Integer,long[]> cache(){
+		final int rows=Math.max(64,CACHE_WORDS/Math.max(1,EventSet.words(size)));
+		return new LinkedHashMap<Integer,long[]>(16,0.75f,true){
+			private static final long serialVersionUID=1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer,long[]> eldest){
+				return size()>rows;
+			}
+		};
+	}
+
+	/* Orders the events so that each comes after all of its causes, by
+	 * repeatedly taking an event whose causes have all been taken */
+	void sort(Relation precedes, Relation succeeds){
+		order=new int[size];
+		int[] waiting=new int[size];
+		int taken=0;
+		for(int i=0;i<size;i++){
+			waiting[i]=succeeds.degree(i);
+			if(waiting[i]==0){
+				order[taken++]=i;
+			}
+		}
+
+		/* The order array doubles as the queue of events to release */
+		for(int next=0;next<taken;next++){
+			int event=order[next];
+			for(int j=precedes.next(event,0);j!=-1;j=precedes.next(event,j+1)){
+				if(--waiting[j]==0){
+					order[taken++]=j;
+				}
+			}
+		}
+
+		/* Any events which were never released lie on or after a cycle */
+		acyclic=(taken==size);
+		for(int i=0;i<size && taken<size;i++){
+			if(waiting[i]>0){
+				order[taken++]=i;
+			}
+		}
+		position=new int[size];
+		for(int i=0;i<size;i++){
+			position[order[i]]=i;
+		}
+	}
+
+	/* Merges the rows of the given event's neighbours into its own row -
+	 * returns true if the event's row changed */
+	boolean propagate(long[][] rows, int event, Relation neighbours){
+		long[] row=rows[event];
+		boolean changed=false;
+		for(int j=neighbours.next(event,0);j!=-1;j=neighbours.next(event,j+1)){
+			if(rows[j]==null){
+				continue;
+			}
+			if(row==null){
+				row=EventSet.create(size);
+				rows[event]=row;
+			}
+			for(int k=0;k<row.length;k++){
+				long merged=row[k]|rows[j][k];
+				if(merged!=row[k]){
+					row[k]=merged;
+					changed=true;
+				}
+			}
+		}
+		return changed;
+	}
+
+	/* Returns the set of the events reachable from the given event along
+	 * the relation, taken from the cache or found by walking the relation
+	 * depth first with an explicit stack. An event reached whose row is
+	 * cached has its whole row added rather than being walked from */
+	synchronized long[] reachable(LinkedHashMap<Integer,long[]> cache, int event, Relation neighbours){
+		if(neighbours.degree(event)==0){
+			return none;
+		}
+		long[] row=cache.get(event);
+		if(row!=null){
+			return row;
+		}
+		row=EventSet.create(size);
+		int depth=0;
+		stack[depth++]=event;
+		while(depth>0){
+			int next=stack[--depth];
+			for(int j=neighbours.next(next,0);j!=-1;j=neighbours.next(next,j+1)){
+				if(EventSet.contains(row,j)){
+					continue;
+				}
+				EventSet.add(row,j);
+				long[] known=cache.get(j);
+				if(known!=null){
+					EventSet.addAll(row,known);
+				}
+				else{
+					stack[depth++]=j;
+				}
+			}
+		}
+		cache.put(event,row);
+		return row;
+	}
+
+	/* Returns the set of all causes of the event - the set must not
+	 * be modified */
+	public long[] causes(int event){
+		return reachable(causes,event,succeeds);
+	}
+
+	/* Returns the set of all consequences of the event - the set must
+	 * not be modified */
+	public long[] consequences(int event){
+		return reachable(consequences,event,precedes);
+	}
+
+	/* Returns the set of all events which the event is in conflict with,
+	 * including inherited conflicts - the set must not be modified */
+	public long[] conflicts(int event){
+		return conflicts[event]==null?none:conflicts[event];
+	}
+
+	/* Returns the local configuration of the event, i.e. the event
+	 * together with all of its causes, as a new set */
+	public long[] localConfiguration(int event){
+		long[] set=causes(event).clone();
+		EventSet.add(set,event);
+		return set;
+	}
+
+	/* Returns true if the first event must precede the second - without a
+	 * cycle, no event can cause one which comes before it in the order */
+	public boolean isCause(int cause, int event){
+		if(acyclic && position[cause]>=position[event]){
+			return false;
+		}
+		return EventSet.contains(causes(event),cause);
+	}
+
+	/* Returns true if the two events are in conflict, directly or through
+	 * inheritance */
+	public boolean inConflict(int a, int b){
+		return conflicts[a]!=null && EventSet.contains(conflicts[a],b);
+	}
+
+	/* Returns the events in an order in which every event follows its
+	 * causes (when the causality relation is acyclic) */
+	public int[] order(){
+		return order;
+	}
+
+	/* Returns true if the causality relation contains no cycle */
+	public boolean isAcyclic(){
+		return acyclic;
+	}
+}
@@ -0,0 +1,276 @@
+package Model;
+
+import java.util.Arrays;
+
+/* A transition graph held entirely in arrays of primitives, with no object
+ * per node or per transition. The configurations of the nodes are kept in a
+ * state store (see StateStore), and the transitions are held in
+ * compressed sparse row form: the transitions out of node n occupy positions
+ * offsets[n] to offsets[n+1]-1 of the targets and labels arrays, in the order
+ * that they were found. The store also records the node and event which each
+ * node was first discovered from, which gives the order its events were
+ * completed in, and the nodes are listed level by level so that any level can
+ * be walked directly.
+ * A graph is filled in by one of the builders in TransitionGraph and then
+ * finished, which converts the transitions into their final form and releases
+ * everything only needed to build it - after that it is never modified */
+public class CompactTransitionGraph implements StateGraph {
+
+	/* The configurations of the nodes */
+	StateStore configurations;
+
+	/* The number of nodes */
+	int size=0;
+
+	/* The number of transitions out of each node, until the graph is finished */
+	int[] degrees;
+
+	/* The transitions in the order that they were added, until the graph is
+	 * finished. While every transition is added after those of lower numbered
+	 * nodes (as the breadth first builders do) the rows can be found from the
+	 * degrees alone, so the source of each transition is only recorded once
+	 * one is added out of order */
+	IntList edgeSources=null;
+	IntList edgeLabels=new IntList();
+	IntList edgeTargets=new IntList();
+
+	/* The source of the last transition added */
+	int lastSource=0;
+
+	/* The transitions once the graph is finished */
+	int[] offsets;
+	int[] targets;
+	int[] labels;
+
+	/* The first position of each level in the list of nodes by level - the
+	 * final entry is the number of nodes */
+	int[] levelStarts;
+
+	/* The nodes in level order (in ID order within a level), or null if the
+	 * IDs are already in level order, as they are when the graph is built
+	 * breadth first */
+	int[] byLevel;
+
+	/* The nodes whose transitions were not all found because the exploration
+	 * was limited (see ExplorationBudget), or null if there are none */
+	long[] unexpanded=null;
+
+	/* The reason that the graph is incomplete, or null if it is complete */
+	String truncation=null;
+
+	/* Creates an empty graph, ready to be built, which keeps its
+	 * configurations in the given (empty) store */
+	CompactTransitionGraph(StateStore configurations){
+		this.configurations=configurations;
+		degrees=new int[64];
+	}
+
+	/* Returns a finished graph with no nodes */
+	static CompactTransitionGraph empty(){
+		CompactTransitionGraph graph=new CompactTransitionGraph(new ConfigurationIndex(0));
+		graph.finish();
+		return graph;
+	}
+
+	/* Adds a node with the given configuration and hash, discovered from
+	 * the given parent node by completing the given event, and returns its ID */
+	int addNode(long[] configuration, long hash, int parent, int event){
+		if(size==degrees.length){
+			degrees=Arrays.copyOf(degrees,size*2);
+		}
+		size++;
+		return configurations.add(configuration,hash,parent,event);
+	}
+
+	/* Returns the ID of the node with the given configuration and hash, or -1 */
+	int find(long[] configuration, long hash){
+		return configurations.get(configuration,hash);
+	}
+
+	/* Returns the hash of the node's configuration */
+	long hash(int node){
+		return configurations.hash(node);
+	}
+
+	/* Adds a transition labelled with the event between the given nodes */
+	void addTransition(int source, int event, int target){
+		if(edgeSources==null && source<lastSource){
+			edgeSources=new IntList(edgeTargets.size()*2);
+			for(int i=0;i<=lastSource;i++){
+				for(int j=0;j<degrees[i];j++){
+					edgeSources.add(i);
+				}
+			}
+		}
+		if(edgeSources!=null){
+			edgeSources.add(source);
+		}
+		lastSource=source;
+		degrees[source]++;
+		edgeLabels.add(event);
+		edgeTargets.add(target);
+	}
+
+	/* Records that not all of the transitions out of the node were found */
+	void markUnexpanded(int node){
+		if(unexpanded==null){
+			unexpanded=new long[0];
+		}
+		if(unexpanded.length<=(node>>>6)){
+			unexpanded=Arrays.copyOf(unexpanded,Math.max(unexpanded.length*2,(node>>>6)+1));
+		}
+		EventSet.add(unexpanded,node);
+	}
+
+	/* Converts the transitions into rows and lists the nodes by level - no
+	 * more nodes or transitions may be added afterwards */
+	void finish(){
+		int count=edgeTargets.size();
+
+		/* Find where each row starts from the number of transitions out of
+		 * each node */
+		offsets=new int[size+1];
+		for(int i=0;i<size;i++){
+			offsets[i+1]=offsets[i]+degrees[i];
+		}
+		degrees=null;
+
+		/* If the transitions were added one node at a time they are already
+		 * in rows, otherwise each is placed at the next free position of its
+		 * row, which keeps the rows in the order the transitions were added */
+		if(edgeSources==null){
+			targets=edgeTargets.toArray();
+			labels=edgeLabels.toArray();
+		}
+		else{
+			targets=new int[count];
+			labels=new int[count];
+			int[] next=Arrays.copyOf(offsets,size);
+			for(int i=0;i<count;i++){
+				int position=next[edgeSources.get(i)]++;
+				targets[position]=edgeTargets.get(i);
+				labels[position]=edgeLabels.get(i);
+			}
+		}
+		edgeSources=edgeLabels=edgeTargets=null;
+
+		/* A node is always discovered after its parent, so the levels can be
+		 * found in one pass in ID order */
+		int[] level=new int[size];
+		int levels=0;
+		boolean levelOrder=true;
+		for(int i=0;i<size;i++){
+			int parent=configurations.parent(i);
+			level[i]=(parent==-1)?0:level[parent]+1;
+			levels=Math.max(levels,level[i]+1);
+			levelOrder&=(i==0 || level[i-1]<=level[i]);
+		}
+		levelStarts=new int[levels+1];
+		for(int i=0;i<size;i++){
+			levelStarts[level[i]+1]++;
+		}
+		for(int i=0;i<levels;i++){
+			levelStarts[i+1]+=levelStarts[i];
+		}
+		if(!levelOrder){
+			byLevel=new int[size];
+			int[] next=Arrays.copyOf(levelStarts,levels);
+			for(int i=0;i<size;i++){
+				byLevel[next[level[i]]++]=i;
+			}
+		}
+
+		configurations.trim();
+	}
+
+	@Override
+	public int size(){
+		return size;
+	}
+
+	@Override
+	public int transitions(){
+		return targets.length;
+	}
+
+	@Override
+	public int degree(int state){
+		return offsets[state+1]-offsets[state];
+	}
+
+	@Override
+	public int target(int state, int index){
+		return targets[offsets[state]+index];
+	}
+
+	@Override
+	public int label(int state, int index){
+		return labels[offsets[state]+index];
+	}
+
+	@Override
+	public int successor(int state, int event){
+		for(int i=offsets[state];i<offsets[state+1];i++){
+			if(labels[i]==event){
+				return targets[i];
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int levels(){
+		return levelStarts.length-1;
+	}
+
+	@Override
+	public int levelSize(int level){
+		return levelStarts[level+1]-levelStarts[level];
+	}
+
+	@Override
+	public int stateAt(int level, int index){
+		int position=levelStarts[level]+index;
+		return byLevel==null?position:byLevel[position];
+	}
+
+	@Override
+	public boolean isTruncated(){
+		return truncation!=null;
+	}
+
+	@Override
+	public String truncation(){
+		return truncation;
+	}
+
+	@Override
+	public boolean isExpanded(int state){
+		return unexpanded==null || (state>>>6)>=unexpanded.length || !EventSet.contains(unexpanded,state);
+	}
+
+	@Override
+	public int level(int state){
+		return configurations.count(state);
+	}
+
+	@Override
+	public boolean contains(int state, int event){
+		return configurations.contains(state,event);
+	}
+
+	@Override
+	public long[] configuration(int state){
+		return configurations.configuration(state);
+	}
+
+	@Override
+	public int[] events(int state){
+		int[] events=new int[level(state)];
+		for(int i=events.length-1;i>=0;i--){
+			events[i]=configurations.event(state);
+			state=configurations.parent(state);
+		}
+		return events;
+	}
+}
@@ -0,0 +1,446 @@
+package Model;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/* Counts the reachable configurations of the loaded event structure, and how
+ * many there are of each size, without enumerating them. The configurations are
+ * exactly the sets of events which hold every direct cause of each of their
+ * events and no two events in immediate conflict (every other conflict is
+ * inherited from one of these by causes, so is ruled out too), which makes
+ * the count a sum over the assignments of one variable per event subject to
+ * a constraint for each pair of the two relations.
+ * The sum is taken by eliminating the events one at a time: eliminating an
+ * event sums it out of the product of the tables which mention it and the
+ * constraints with its remaining neighbours, giving a table over those
+ * neighbours. The events eliminated with their neighbours at the time form the
+ * bags of a tree decomposition of the graph of the two relations, so the work
+ * is exponential only in the width of that decomposition rather than in the
+ * number of events - a long chain of causes or a structure made of many small
+ * independent parts is counted in time polynomial in its size. The order is chosen
+ * greedily, each time eliminating the event which adds the fewest new edges
+ * between its neighbours (then the one with the fewest neighbours).
+ * Each entry of a table is a polynomial in the number of events included,
+ * held as an array of counts indexed by size, so the final polynomial is the
+ * number of configurations at each level of the transition graph */
+public class ConfigurationCount {
+
+	/* The widest decomposition counted - a table over this many events has
+	 * 2^MAX_WIDTH entries */
+	static final int MAX_WIDTH=24;
+
+	/* The order in which the events are eliminated */
+	int[] order;
+
+	/* The width of the decomposition, the most neighbours of an event
+	 * when it was eliminated */
+	int width;
+
+	/* The number of configurations of each size, or null if truncated */
+	BigInteger[] levels;
+
+	/* The reason that the count is incomplete, or null if it is not */
+	String truncation=null;
+
+	/* A table over some events not yet eliminated, mapping each assignment
+	 * to them (bit i set if scope[i] is included) to a polynomial, where
+	 * null is the zero polynomial */
+	static class Table {
+		int[] scope;
+		BigInteger[][] entries;
+
+		Table(int[] scope){
+			this.scope=scope;
+			this.entries=new BigInteger[1<<scope.length][];
+		}
+	}
+
+	/* Creates an empty result */
+	ConfigurationCount(){
+	}
+
+	/* Counts the configurations of the loaded structure within the budget,
+	 * whose state limit applies to the number of entries of each table on
+	 * its own, so that no single table may have more entries than it. If
+	 * the budget runs out, or the decomposition found is wider than
+	 * MAX_WIDTH, the result is marked as truncated and holds no counts */
+	public static ConfigurationCount count(ExplorationBudget budget){
+		budget.start();
+		ConfigurationCount result=new ConfigurationCount();
+		int size=EventStructure.events.length;
+		Relation succeeds=EventStructure.succeeds;
+		Relation conflicts=EventStructure.relations.immediateConflicts();
+
+		/* The graph of the two relations, one set of neighbours per event */
+		long[][] neighbours=new long[size][];
+		for(int e=0;e<size;e++){
+			neighbours[e]=EventSet.create(size);
+			succeeds.addRow(e,neighbours[e]);
+			EventStructure.precedes.addRow(e,neighbours[e]);
+			conflicts.addRow(e,neighbours[e]);
+		}
+		result.order=eliminationOrder(neighbours,budget);
+		if(result.order!=null){
+			result.width=result.decompositionWidth(neighbours);
+			if(result.width>MAX_WIDTH){
+				budget.stop("Tree decomposition of width "+result.width+" found, above the limit of "+MAX_WIDTH);
+			}
+			else{
+				result.levels=result.eliminate(budget);
+			}
+		}
+		result.truncation=budget.truncation();
+		if(result.truncation!=null){
+			result.levels=null;
+		}
+		return result;
+	}
+
+	/* Returns the order in which to eliminate the events of the graph, or
+	 * null if the budget runs out - each time the event chosen is the one
+	 * whose elimination adds the fewest edges between its neighbours, then
+	 * the one with the fewest neighbours, then the lowest numbered. Only the
+	 * events near the one eliminated change their number of edges added, so
+	 * only theirs are worked out again */
+	static int[] eliminationOrder(long[][] graph, ExplorationBudget budget){
+		int size=graph.length;
+		long[][] adjacent=new long[size][];
+		int[] degree=new int[size];
+		int[] fill=new int[size];
+		for(int e=0;e<size;e++){
+			adjacent[e]=graph[e].clone();
+			degree[e]=EventSet.size(adjacent[e]);
+		}
+		for(int e=0;e<size;e++){
+			fill[e]=fill(adjacent,e,degree[e]);
+		}
+		int[] order=new int[size];
+		boolean[] eliminated=new boolean[size];
+		for(int i=0;i<size;i++){
+			if(i%ExplorationBudget.CHECK_INTERVAL==0 && budget.exhausted(i,size-i)){
+				return null;
+			}
+			int best=-1;
+			for(int e=0;e<size;e++){
+				if(!eliminated[e] && (best==-1 || fill[e]<fill[best] ||
+						(fill[e]==fill[best] && degree[e]<degree[best]))){
+					best=e;
+				}
+			}
+			order[i]=best;
+			eliminated[best]=true;
+
+			/* Join the neighbours of the event to each other and remove it */
+			long[] around=adjacent[best];
+			for(int a=EventSet.next(around,0);a!=-1;a=EventSet.next(around,a+1)){
+				EventSet.remove(adjacent[a],best);
+				EventSet.addAll(adjacent[a],around);
+				EventSet.remove(adjacent[a],a);
+				degree[a]=EventSet.size(adjacent[a]);
+			}
+
+			/* Work out again the edges added by the neighbours and theirs */
+			long[] changed=around.clone();
+			for(int a=EventSet.next(around,0);a!=-1;a=EventSet.next(around,a+1)){
+				EventSet.addAll(changed,adjacent[a]);
+			}
+			for(int e=EventSet.next(changed,0);e!=-1;e=EventSet.next(changed,e+1)){
+				fill[e]=fill(adjacent,e,degree[e]);
+			}
+		}
+		return order;
+	}
+
+	/* Returns the number of edges which eliminating the event would add
+	 * between its neighbours - events with more neighbours than the widest
+	 * decomposition counted are given the most possible, so that the
+	 * pairs of their neighbours are never checked */
+	static int fill(long[][] adjacent, int event, int degree){
+		if(degree>MAX_WIDTH){
+			return Integer.MAX_VALUE;
+		}
+		int fill=0;
+		long[] around=adjacent[event];
+		for(int a=EventSet.next(around,0);a!=-1;a=EventSet.next(around,a+1)){
+			for(int b=EventSet.next(around,a+1);b!=-1;b=EventSet.next(around,b+1)){
+				if(!EventSet.contains(adjacent[a],b)){
+					fill++;
+				}
+			}
+		}
+		return fill;
+	}
+
+	/* Returns the width of the decomposition given by the elimination order,
+	 * the most neighbours that an event has when it is eliminated */
+	int decompositionWidth(long[][] graph){
+		int size=graph.length;
+		long[][] adjacent=new long[size][];
+		for(int e=0;e<size;e++){
+			adjacent[e]=graph[e].clone();
+		}
+		int widest=0;
+		for(int i=0;i<size;i++){
+			long[] around=adjacent[order[i]];
+			widest=Math.max(widest,EventSet.size(around));
+			if(widest>MAX_WIDTH){
+				break;
+			}
+			for(int a=EventSet.next(around,0);a!=-1;a=EventSet.next(around,a+1)){
+				EventSet.remove(adjacent[a],order[i]);
+				EventSet.addAll(adjacent[a],around);
+				EventSet.remove(adjacent[a],a);
+			}
+		}
+		return widest;
+	}
+
+	/* Eliminates the events in order and returns the number of configurations
+	 * of each size, or null if the budget runs out. The tables produced are
+	 * kept in a bucket for the first event of their scope to be eliminated,
+	 * and the tables with an empty scope - one per part of the structure
+	 * independent of the rest - are multiplied together at the end */
+	BigInteger[] eliminate(ExplorationBudget budget){
+		int size=EventStructure.events.length;
+		Relation succeeds=EventStructure.succeeds;
+		Relation conflicts=EventStructure.relations.immediateConflicts();
+		int[] position=new int[size];
+		for(int i=0;i<size;i++){
+			position[order[i]]=i;
+		}
+		ArrayList<ArrayList<Table>> buckets=new ArrayList<ArrayList<Table>>();
+		for(int i=0;i<size;i++){
+			buckets.add(new ArrayList<Table>());
+		}
+		BigInteger[] total={BigInteger.ONE};
+		for(int i=0;i<size;i++){
+			int event=order[i];
+			ArrayList<Table> bucket=buckets.get(i);
+			buckets.set(i,null);
+
+			/* The remaining neighbours of the event are the other events of
+			 * its tables and those it is related to which are still to come */
+			long[] remaining=EventSet.create(size);
+			for(Table table:bucket){
+				for(int j=0;j<table.scope.length;j++){
+					EventSet.add(remaining,table.scope[j]);
+				}
+			}
+			EventSet.remove(remaining,event);
+			long[] causes=EventSet.create(size);
+			long[] consequences=EventSet.create(size);
+			long[] excluded=EventSet.create(size);
+			for(int c=succeeds.next(event,0);c!=-1;c=succeeds.next(event,c+1)){
+				if(position[c]>i){
+					EventSet.add(causes,c);
+				}
+			}
+			for(int c=EventStructure.precedes.next(event,0);c!=-1;c=EventStructure.precedes.next(event,c+1)){
+				if(position[c]>i){
+					EventSet.add(consequences,c);
+				}
+			}
+			for(int c=conflicts.next(event,0);c!=-1;c=conflicts.next(event,c+1)){
+				if(position[c]>i){
+					EventSet.add(excluded,c);
+				}
+			}
+			EventSet.addAll(remaining,causes);
+			EventSet.addAll(remaining,consequences);
+			EventSet.addAll(remaining,excluded);
+
+			int[] scope=new int[EventSet.size(remaining)];
+			for(int j=0,e=EventSet.next(remaining,0);e!=-1;e=EventSet.next(remaining,e+1)){
+				scope[j++]=e;
+			}
+
+			/* Each table is checked against the state limit on its own, as
+			 * only the tables still waiting in buckets are held at once */
+			int entries=1<<scope.length;
+			if((entries>budget.maxStates && budget.full(entries)) || budget.exhausted(i,size-i)){
+				return null;
+			}
+			Table result=sumOut(event,scope,bucket,mask(scope,causes),mask(scope,consequences),mask(scope,excluded));
+			if(scope.length==0){
+				total=multiply(total,result.entries[0]);
+				if(total==null){
+					return new BigInteger[]{BigInteger.ZERO};
+				}
+			}
+			else{
+				int earliest=size;
+				for(int j=0;j<scope.length;j++){
+					earliest=Math.min(earliest,position[scope[j]]);
+				}
+				buckets.get(earliest).add(result);
+			}
+		}
+		return trim(total);
+	}
+
+	/* Returns the table over the scope given by summing the event out of
+	 * the product of the tables, keeping only the assignments in which the
+	 * event has all its causes, none of its consequences if it is excluded,
+	 * and none of the events it is in conflict with if it is included - the
+	 * masks give the positions of these events in the scope */
+	static Table sumOut(int event, int[] scope, ArrayList<Table> tables, int causes, int consequences, int excluded){
+		Table result=new Table(scope);
+
+		/* Where each table's events are in the scope, with the event itself
+		 * at position scope.length */
+		int[][] positions=new int[tables.size()][];
+		for(int t=0;t<tables.size();t++){
+			int[] tableScope=tables.get(t).scope;
+			positions[t]=new int[tableScope.length];
+			for(int j=0;j<tableScope.length;j++){
+				positions[t][j]=tableScope[j]==event?scope.length:indexOf(scope,tableScope[j]);
+			}
+		}
+		for(int assignment=0;assignment<result.entries.length;assignment++){
+			BigInteger[] sum=null;
+			if((assignment&consequences)==0){
+				sum=product(tables,positions,assignment);
+			}
+			if((assignment&causes)==causes && (assignment&excluded)==0){
+				BigInteger[] included=product(tables,positions,assignment|(1<<scope.length));
+				if(included!=null){
+					sum=add(sum,shift(included));
+				}
+			}
+			result.entries[assignment]=sum;
+		}
+		return result;
+	}
+
+	/* Returns the product of the tables' entries for the assignment to the
+	 * scope and the event, or null if it is zero */
+	static BigInteger[] product(ArrayList<Table> tables, int[][] positions, int assignment){
+		BigInteger[] product={BigInteger.ONE};
+		for(int t=0;t<tables.size() && product!=null;t++){
+			int index=0;
+			for(int j=0;j<positions[t].length;j++){
+				if((assignment&(1<<positions[t][j]))!=0){
+					index|=1<<j;
+				}
+			}
+			product=multiply(product,tables.get(t).entries[index]);
+		}
+		return product;
+	}
+
+	/* Returns the bits of the positions in the scope of the events in the set */
+	static int mask(int[] scope, long[] events){
+		int mask=0;
+		for(int j=0;j<scope.length;j++){
+			if(EventSet.contains(events,scope[j])){
+				mask|=1<<j;
+			}
+		}
+		return mask;
+	}
+
+	/* Returns the position of the event in the scope */
+	static int indexOf(int[] scope, int event){
+		for(int j=0;j<scope.length;j++){
+			if(scope[j]==event){
+				return j;
+			}
+		}
+		return -1;
+	}
+
+	/* Returns the product of two polynomials, where null is zero */
+	static BigInteger[] multiply(BigInteger[] a, BigInteger[] b){
+		if(a==null || b==null){
+			return null;
+		}
+		if(a.length==1 && a[0].equals(BigInteger.ONE)){
+			return b;
+		}
+		if(b.length==1 && b[0].equals(BigInteger.ONE)){
+			return a;
+		}
+		BigInteger[] product=new BigInteger[a.length+b.length-1];
+		for(int k=0;k<product.length;k++){
+			product[k]=BigInteger.ZERO;
+		}
+		for(int i=0;i<a.length;i++){
+			if(a[i].signum()==0){
+				continue;
+			}
+			for(int j=0;j<b.length;j++){
+				product[i+j]=product[i+j].add(a[i].multiply(b[j]));
+			}
+		}
+		return product;
+	}
+
+	/* Returns the sum of two polynomials, where null is zero */
+	static BigInteger[] add(BigInteger[] a, BigInteger[] b){
+		if(a==null){
+			return b;
+		}
+		if(b==null){
+			return a;
+		}
+		BigInteger[] sum=new BigInteger[Math.max(a.length,b.length)];
+		for(int k=0;k<sum.length;k++){
+			sum[k]=(k<a.length?a[k]:BigInteger.ZERO).add(k<b.length?b[k]:BigInteger.ZERO);
+		}
+		return sum;
+	}
+
+	/* Returns the polynomial with every count moved up one size */
+	static BigInteger[] shift(BigInteger[] a){
+		BigInteger[] shifted=new BigInteger[a.length+1];
+		shifted[0]=BigInteger.ZERO;
+		System.arraycopy(a,0,shifted,1,a.length);
+		return shifted;
+	}
+
+	/* Returns the polynomial without its zero counts above the highest size
+	 * counted, keeping at least the count for size 0 */
+	static BigInteger[] trim(BigInteger[] a){
+		int length=a.length;
+		while(length>1 && a[length-1].signum()==0){
+			length--;
+		}
+		return length==a.length?a:Arrays.copyOf(a,length);
+	}
+
+	/* Returns the number of reachable configurations, or null if truncated */
+	public BigInteger total(){
+		if(levels==null){
+			return null;
+		}
+		BigInteger total=BigInteger.ZERO;
+		for(int k=0;k<levels.length;k++){
+			total=total.add(levels[k]);
+		}
+		return total;
+	}
+
+	/* Returns the number of reachable configurations with each number of
+	 * events, up to the size of the largest configuration, or null if
+	 * truncated */
+	public BigInteger[] levelCounts(){
+		return levels==null?null:levels.clone();
+	}
+
+	/* Returns the width of the tree decomposition used, which bounds the
+	 * treewidth of the structure from above */
+	public int width(){
+		return width;
+	}
+
+	/* Returns true if the count is incomplete because its budget ran out */
+	public boolean isTruncated(){
+		return truncation!=null;
+	}
+
+	/* Returns the reason that the count is incomplete, or null if it is not */
+	public String truncation(){
+		return truncation;
+	}
+}
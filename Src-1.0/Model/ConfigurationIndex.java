@@ -0,0 +1,172 @@
+package Model;
+
+import java.util.Arrays;
+
+/* The state store (see StateStore) which keeps the configurations of the
+ * transition graph's nodes on the Java heap, and maps each configuration back
+ * to the ID of its node. The configurations are stored one after another in a
+ * single pool of words, a fixed number per node, so a node's configuration is
+ * found from its ID with no per-node object at all. Each configuration is
+ * supplied together with its hash, which the transition graph maintains
+ * incrementally as events are added, so a lookup costs a single probe sequence
+ * of an open-addressing hash table rather than a comparison against every
+ * node. The table holds only node IDs - collisions are resolved by linear
+ * probing, and it doubles in size whenever it becomes half full */
+public class ConfigurationIndex implements StateStore {
+
+	/* The number of words in each configuration */
+	int words;
+
+	/* The configurations of the nodes, words per node in ID order */
+	long[] pool;
+
+	/* The node and event from which each node was first discovered, in ID order */
+	int[] parents;
+	int[] parentEvents;
+
+	/* The hash of each node's configuration, in ID order - this is compared
+	 * before the configurations themselves so that most mismatches are
+	 * rejected without touching the pool */
+	long[] hashes;
+
+	/* The node ID stored in each slot of the table, -1 marks an empty slot */
+	int[] slots;
+
+	/* The number of configurations held */
+	int size=0;
+
+	/* Creates an empty index for configurations of the given number of events */
+	public ConfigurationIndex(int events){
+		words=EventSet.words(events);
+		pool=new long[words*64];
+		hashes=new long[64];
+		parents=new int[64];
+		parentEvents=new int[64];
+		allocate(128);
+	}
+
+	@Override
+	public int get(long[] configuration, long hash){
+		int mask=slots.length-1;
+
+		/* Probe from the home slot until the configuration or an empty slot
+		 * is found */
+		for(int slot=spread(hash)&mask;slots[slot]!=-1;slot=(slot+1)&mask){
+			int id=slots[slot];
+			if(hashes[id]==hash && matches(id,configuration)){
+				return id;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int add(long[] configuration, long hash, int parent, int event){
+		if(size==hashes.length){
+			pool=Arrays.copyOf(pool,pool.length*2);
+			hashes=Arrays.copyOf(hashes,hashes.length*2);
+			parents=Arrays.copyOf(parents,parents.length*2);
+			parentEvents=Arrays.copyOf(parentEvents,parentEvents.length*2);
+		}
+		System.arraycopy(configuration,0,pool,size*words,words);
+		hashes[size]=hash;
+		parents[size]=parent;
+		parentEvents[size]=event;
+
+		/* Grow the table before it becomes too full for probing to stay short */
+		if((size+1)*2>slots.length){
+			resize();
+		}
+		insert(size);
+		return size++;
+	}
+
+	@Override
+	public int size(){
+		return size;
+	}
+
+	@Override
+	public long hash(int id){
+		return hashes[id];
+	}
+
+	@Override
+	public boolean contains(int id, int event){
+		return (pool[id*words+(event>>>6)]&(1L<<event))!=0;
+	}
+
+	@Override
+	public int count(int id){
+		int count=0;
+		for(int i=id*words;i<(id+1)*words;i++){
+			count+=Long.bitCount(pool[i]);
+		}
+		return count;
+	}
+
+	@Override
+	public long[] configuration(int id){
+		return Arrays.copyOfRange(pool,id*words,(id+1)*words);
+	}
+
+	@Override
+	public int parent(int id){
+		return parents[id];
+	}
+
+	@Override
+	public int event(int id){
+		return parentEvents[id];
+	}
+
+	/* Returns true if the configuration with the given ID equals the given one */
+	boolean matches(int id, long[] configuration){
+		int offset=id*words;
+		for(int i=0;i<words;i++){
+			if(pool[offset+i]!=configuration[i]){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/* Releases the hash table and trims the pool to its contents */
+	@Override
+	public void trim(){
+		pool=Arrays.copyOf(pool,size*words);
+		parents=Arrays.copyOf(parents,size);
+		parentEvents=Arrays.copyOf(parentEvents,size);
+		hashes=null;
+		slots=null;
+	}
+
+	/* Places an ID in the first free slot of its probe sequence */
+	void insert(int id){
+		int mask=slots.length-1;
+		int slot=spread(hashes[id])&mask;
+		while(slots[slot]!=-1){
+			slot=(slot+1)&mask;
+		}
+		slots[slot]=id;
+	}
+
+	/* Doubles the capacity of the table and re-inserts all entries */
+	void resize(){
+		allocate(slots.length*2);
+		for(int id=0;id<size;id++){
+			insert(id);
+		}
+	}
+
+	/* Allocates an empty table of the given capacity (a power of two) */
+	void allocate(int capacity){
+		slots=new int[capacity];
+		Arrays.fill(slots,-1);
+	}
+
+	/* Folds the high bits of a hash into the low bits used to pick a slot */
+	static int spread(long hash){
+		return (int)(hash^(hash>>>32));
+	}
+}
@@ -0,0 +1,214 @@
+package Model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/* Streams of the reachable configurations of the loaded event structure, and
+ * of the transitions between them, produced lazily as they are consumed rather
+ * than by building the transition graph - this class is never instantiated.
+ * No record is kept of the configurations already produced. Instead every
+ * configuration other than the empty one is generated from exactly one other:
+ * the one without its highest numbered maximal event (an event which no other
+ * event of the configuration depends on, so removing it always leaves a
+ * configuration). Completing an event e from a configuration therefore only
+ * generates a new configuration if every maximal event numbered above e is a
+ * direct cause of e, as otherwise that event would still be maximal afterwards.
+ * This turns the transition graph into a tree, so each configuration is produced
+ * exactly once, and the only memory used is for the configurations which are
+ * waiting to be expanded - the current path and its siblings when depth first,
+ * or one level of the graph when breadth first.
+ * The streams can be made parallel: the configurations waiting to be expanded
+ * are shared out between the threads, each of which then carries on
+ * independently, so the order in which the configurations are produced is
+ * only defined for a sequential stream */
+public class ConfigurationStream {
+
+	/* Returns a stream of every reachable configuration (see EventSet),
+	 * depth first from the empty configuration */
+	public static Stream<long[]> configurations(){
+		return configurations(TransitionGraph.DEPTH_FIRST);
+	}
+
+	/* Returns a stream of every reachable configuration, produced in the given
+	 * order (TransitionGraph.DEPTH_FIRST or BREADTH_FIRST - breadth first
+	 * produces the configurations level by level). Each configuration is a new
+	 * set which the consumer may keep or modify */
+	public static Stream<long[]> configurations(int order){
+		return StreamSupport.stream(new StateSpliterator(order),false).map(new Function<State,long[]>(){
+			@Override
+			public long[] apply(State state){
+				return state.configuration;
+			}
+		});
+	}
+
+	/* Returns a stream of every transition between reachable configurations,
+	 * grouped by source configuration, with the sources in the given order */
+	public static Stream<Transition> transitions(int order){
+		return StreamSupport.stream(new StateSpliterator(order),false).flatMap(new Function<State,Stream<Transition>>(){
+			@Override
+			public Stream<Transition> apply(State state){
+				ArrayList<Transition> transitions=new ArrayList<Transition>();
+				for(int e=EventSet.next(state.enabled,0);e!=-1;e=EventSet.next(state.enabled,e+1)){
+					long[] target=state.configuration.clone();
+					EventSet.add(target,e);
+					transitions.add(new Transition(state.configuration,e,target));
+				}
+				return transitions.stream();
+			}
+		});
+	}
+
+	/* A transition between two configurations, labelled with the event
+	 * completed - the source is shared between the transitions out of it */
+	public static class Transition {
+		public final long[] source;
+		public final int event;
+		public final long[] target;
+
+		Transition(long[] source, int event, long[] target){
+			this.source=source;
+			this.event=event;
+			this.target=target;
+		}
+	}
+
+	/* A reachable configuration, with the events enabled in it and its
+	 * maximal events, which is produced and then expanded */
+	static class State {
+		long[] configuration;
+		long[] enabled;
+		long[] maximal;
+
+		/* Set once the configurations generated from this one have been
+		 * queued, so that only the configuration itself remains to produce */
+		boolean expanded=false;
+
+		State(long[] configuration, long[] enabled, long[] maximal){
+			this.configuration=configuration;
+			this.enabled=enabled;
+			this.maximal=maximal;
+		}
+	}
+
+	/* Produces the states of the tree described above from the states waiting
+	 * to be expanded - the waiting states are used as a stack when depth first
+	 * and as a queue when breadth first */
+	static class StateSpliterator implements Spliterator<State> {
+
+		/* The states waiting to be produced */
+		ArrayDeque<State> waiting=new ArrayDeque<State>();
+
+		/* Set to produce the states depth first */
+		boolean depthFirst;
+
+		/* The estimated number of states still to produce - the true number
+		 * is unknown, so this starts unbounded and is halved on each split,
+		 * which lets a parallel stream split the work a few times per thread */
+		long estimate=Long.MAX_VALUE;
+
+		/* Creates a spliterator over every reachable state in the given order */
+		StateSpliterator(int order){
+			depthFirst=(order!=TransitionGraph.BREADTH_FIRST);
+			int events=EventStructure.events.length;
+			waiting.add(new State(EventSet.create(events),TransitionGraph.initialEnabled(),EventSet.create(events)));
+		}
+
+		/* Creates an empty spliterator in the same order, to be given some
+		 * of the waiting states by a split */
+		StateSpliterator(boolean depthFirst, long estimate){
+			this.depthFirst=depthFirst;
+			this.estimate=estimate;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super State> action){
+			State state=waiting.pollFirst();
+			if(state==null){
+				return false;
+			}
+			if(!state.expanded){
+				expand(state);
+			}
+			action.accept(state);
+			return true;
+		}
+
+		/* Queues the states generated from the given one - when depth first
+		 * they are pushed in reverse so that the lowest event is taken first */
+		void expand(State state){
+			state.expanded=true;
+			ArrayList<State> children=new ArrayList<State>();
+			long[] enabled=state.enabled;
+			for(int e=EventSet.next(enabled,0);e!=-1;e=EventSet.next(enabled,e+1)){
+				if(!generates(state.maximal,e)){
+					continue;
+				}
+				long[] configuration=state.configuration.clone();
+				EventSet.add(configuration,e);
+				long[] maximal=state.maximal.clone();
+				EventStructure.succeeds.removeRow(e,maximal);
+				EventSet.add(maximal,e);
+				children.add(new State(configuration,TransitionGraph.enabledAfter(enabled,configuration,e),maximal));
+			}
+			if(depthFirst){
+				for(int i=children.size()-1;i>=0;i--){
+					waiting.addFirst(children.get(i));
+				}
+			}
+			else{
+				waiting.addAll(children);
+			}
+		}
+
+		/* Returns true if completing the event from a configuration with the
+		 * given maximal events generates a new configuration, i.e. every
+		 * maximal event numbered above it is one of its direct causes */
+		static boolean generates(long[] maximal, int event){
+			for(int m=EventSet.next(maximal,event+1);m!=-1;m=EventSet.next(maximal,m+1)){
+				if(!EventStructure.succeeds.get(event,m)){
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/* Gives half of the waiting states to a new spliterator - the states
+		 * longest waiting are given away, as they are nearest the root and so
+		 * have the most below them. A single waiting state is expanded first
+		 * so that the work below it can be shared */
+		@Override
+		public Spliterator<State> trySplit(){
+			if(waiting.size()==1 && !waiting.peekFirst().expanded){
+				State state=waiting.pollFirst();
+				expand(state);
+				waiting.addFirst(state);
+			}
+			int count=waiting.size()/2;
+			if(count==0){
+				return null;
+			}
+			estimate>>>=1;
+			StateSpliterator split=new StateSpliterator(depthFirst,estimate);
+			for(int i=0;i<count;i++){
+				split.waiting.addFirst(waiting.pollLast());
+			}
+			return split;
+		}
+
+		@Override
+		public long estimateSize(){
+			return waiting.isEmpty()?0:estimate;
+		}
+
+		@Override
+		public int characteristics(){
+			return NONNULL|DISTINCT;
+		}
+	}
+}
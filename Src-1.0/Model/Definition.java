@@ -0,0 +1,29 @@
+package Model;
+
+import java.util.ArrayList;
+
+/* The parsed definition of a Prime Event Structure - the declared events and
+ * the causality and conflict relations between them, held by event ID. This is
+ * produced by the Parser and handed to EventStructure, which builds its
+ * relationship storage directly from the lists of pairs */
+public class Definition {
+
+	/* The declared events */
+	public SymbolTable symbols=new SymbolTable();
+
+	/* Pairs of event IDs (first, second) where the first event precedes
+	 * the second */
+	public IntList precedes=new IntList();
+
+	/* Pairs of event IDs which are in conflict */
+	public IntList conflicts=new IntList();
+
+	/* Messages describing any errors found in the input, each including
+	 * the line and column at which the error was found */
+	public ArrayList<String> errors=new ArrayList<String>();
+
+	/* Returns the number of declared events */
+	public int size(){
+		return symbols.size();
+	}
+}
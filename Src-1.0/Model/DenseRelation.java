@@ -0,0 +1,82 @@
+package Model;
+
+/* A relation stored as one bitset (see EventSet) per event - the set of events
+ * to which it is related. This takes a bit for every possible pair, so it is
+ * only used for densely related structures, where combining a whole row with a
+ * configuration a word at a time is also the fastest way to test it */
+public class DenseRelation extends Relation {
+
+	/* The set of events to which each event is related */
+	long[][] rows;
+
+	/* Creates an empty relation over the given number of events */
+	DenseRelation(int size){
+		this.size=size;
+		rows=new long[size][];
+		for(int i=0;i<size;i++){
+			rows[i]=EventSet.create(size);
+		}
+	}
+
+	@Override
+	void add(int from, int to){
+		EventSet.add(rows[from],to);
+	}
+
+	@Override
+	void complete(){
+	}
+
+	@Override
+	public boolean get(int from, int to){
+		return EventSet.contains(rows[from],to);
+	}
+
+	@Override
+	public int next(int from, int index){
+		return EventSet.next(rows[from],index);
+	}
+
+	@Override
+	public int degree(int from){
+		return EventSet.size(rows[from]);
+	}
+
+	@Override
+	public boolean rowContainedIn(int from, long[] set){
+		long[] row=rows[from];
+		for(int i=0;i<row.length;i++){
+			if((row[i]&~set[i])!=0){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean rowIntersects(int from, long[] set){
+		long[] row=rows[from];
+		for(int i=0;i<row.length;i++){
+			if((row[i]&set[i])!=0){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void addRow(int from, long[] set){
+		long[] row=rows[from];
+		for(int i=0;i<row.length;i++){
+			set[i]|=row[i];
+		}
+	}
+
+	@Override
+	public void removeRow(int from, long[] set){
+		long[] row=rows[from];
+		for(int i=0;i<row.length;i++){
+			set[i]&=~row[i];
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package Model;
+
+/* Receives the commentary and state changes produced while an event structure
+ * is loaded and executed. The model never refers to the windows directly, so
+ * that it can be used without a display - the GUI installs its own
+ * implementation in EventStructure.display, and otherwise everything is
+ * discarded */
+public interface Display {
+
+	/* Writes a line of commentary, e.g. to the console window */
+	void write(String message);
+
+	/* Called once the given event has been completed */
+	void eventCompleted(int event);
+
+	/* Called once the execution of the structure has been reset */
+	void reset();
+
+	/* A display which discards everything */
+	Display NONE=new Display(){
+		@Override
+		public void write(String message){
+		}
+		@Override
+		public void eventCompleted(int event){
+		}
+		@Override
+		public void reset(){
+		}
+	};
+}
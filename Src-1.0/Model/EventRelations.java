@@ -0,0 +1,167 @@
+package Model;
+
+/* Classifies every pair of events of a structure, using the closures of its
+ * relations (see CausalClosure). Any two distinct events are either
+ * causally related (one must precede the other), in conflict (directly or
+ * through inheritance), or concurrent - neither, so they may occur together in
+ * either order. A conflict is immediate when it is not inherited from a
+ * conflict between the causes of the two events; these are the only conflicts
+ * which need to be drawn, as all others follow from them.
+ * The immediate conflicts are a subset of the declared conflicts and are held
+ * as a Relation. The concurrency relation is usually dense, so it is held as
+ * one bitset per event and is only built, a word at a time from the closures,
+ * the first time that it is needed */
+public class EventRelations {
+
+	/* The possible classifications of a pair of events */
+	public static final int IDENTICAL=0;
+	public static final int CAUSE=1;
+	public static final int CONSEQUENCE=2;
+	public static final int CONFLICT=3;
+	public static final int CONCURRENT=4;
+
+	/* The number of events */
+	int size;
+
+	/* The closures which the pairs are classified from */
+	CausalClosure closure;
+
+	/* The immediate conflicts */
+	Relation immediate;
+
+	/* The events concurrent with each event, or null until needed */
+	long[][] concurrent;
+
+	/* Classifies the events of the given relations and their closure */
+	public EventRelations(Relation succeeds, Relation conflicts, CausalClosure closure){
+		size=conflicts.size();
+		this.closure=closure;
+
+		/* A declared conflict is immediate unless one of the events is
+		 * already in conflict with a direct cause of the other - every
+		 * conflict inherited from further back is also inherited by the
+		 * direct causes, so these are the only causes which need checking */
+		IntList pairs=new IntList();
+		for(int a=0;a<size;a++){
+			for(int b=conflicts.next(a,a+1);b!=-1;b=conflicts.next(a,b+1)){
+				if(!inheritedFromCause(succeeds,a,b) && !inheritedFromCause(succeeds,b,a)){
+					pairs.add(a);
+					pairs.add(b);
+				}
+			}
+		}
+		immediate=Relation.create(size,pairs,true,true);
+	}
+
+	/* Returns true if any direct cause of the first event is in conflict
+	 * with the second */
+	boolean inheritedFromCause(Relation succeeds, int event, int other){
+		for(int p=succeeds.next(event,0);p!=-1;p=succeeds.next(event,p+1)){
+			if(closure.inConflict(p,other)){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/* Builds the concurrency relation - an event is concurrent with every
+	 * event which is neither a cause, a consequence nor in conflict with it */
+	synchronized void buildConcurrent(){
+		if(concurrent!=null){
+			return;
+		}
+		long[][] rows=new long[size][];
+		int words=EventSet.words(size);
+		long last=(size%64==0)?-1L:(1L<<(size%64))-1;
+		for(int e=0;e<size;e++){
+			long[] causes=closure.causes(e);
+			long[] consequences=closure.consequences(e);
+			long[] conflicts=closure.conflicts(e);
+			long[] row=new long[words];
+			for(int i=0;i<words;i++){
+				row[i]=~(causes[i]|consequences[i]|conflicts[i]);
+			}
+			if(words>0){
+				row[words-1]&=last;
+			}
+			EventSet.remove(row,e);
+			rows[e]=row;
+		}
+		concurrent=rows;
+	}
+
+	/* Returns the relationship between the two events, as seen from the
+	 * first - CAUSE means that the first event must precede the second */
+	public int classify(int a, int b){
+		if(a==b){
+			return IDENTICAL;
+		}
+		if(closure.isCause(a,b)){
+			return CAUSE;
+		}
+		if(closure.isCause(b,a)){
+			return CONSEQUENCE;
+		}
+		if(closure.inConflict(a,b)){
+			return CONFLICT;
+		}
+		return CONCURRENT;
+	}
+
+	/* Returns true if the two events are concurrent */
+	public boolean isConcurrent(int a, int b){
+		return classify(a,b)==CONCURRENT;
+	}
+
+	/* Returns true if the two events are in conflict, directly or through
+	 * inheritance */
+	public boolean inConflict(int a, int b){
+		return closure.inConflict(a,b);
+	}
+
+	/* Returns true if the two events are in immediate conflict */
+	public boolean isImmediateConflict(int a, int b){
+		return immediate.get(a,b);
+	}
+
+	/* Returns the set of events concurrent with the event - the set must
+	 * not be modified */
+	public long[] concurrent(int event){
+		buildConcurrent();
+		return concurrent[event];
+	}
+
+	/* Returns the set of events in conflict with the event, including
+	 * inherited conflicts - the set must not be modified */
+	public long[] conflicts(int event){
+		return closure.conflicts(event);
+	}
+
+	/* Returns the immediate conflicts */
+	public Relation immediateConflicts(){
+		return immediate;
+	}
+
+	/* Returns the number of unordered pairs of concurrent events */
+	public long concurrentPairs(){
+		long pairs=0;
+		for(int e=0;e<size;e++){
+			pairs+=EventSet.size(concurrent(e));
+		}
+		return pairs/2;
+	}
+
+	/* Returns the number of unordered pairs of events in conflict */
+	public long conflictPairs(){
+		long pairs=0;
+		for(int e=0;e<size;e++){
+			pairs+=EventSet.size(closure.conflicts(e));
+		}
+		return pairs/2;
+	}
+
+	/* Returns the number of unordered pairs of events in immediate conflict */
+	public long immediateConflictPairs(){
+		return immediate.pairs()/2;
+	}
+}
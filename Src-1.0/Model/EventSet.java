@@ -0,0 +1,112 @@
+package Model;
+
+/* This class contains operations on sets of events which are encoded
+ * as fixed-width bitsets - this class is never instantiated.
+ * A set is stored as an array of longs, where bit (i mod 64) of word
+ * (i / 64) is set when the event with internal index i is a member.
+ * All sets created for the same event structure have the same width, so
+ * two sets can be compared or combined word by word.
+ */
+public class EventSet {
+
+	/* Returns the number of words needed to hold one bit per event */
+	public static int words(int noOfEvents){
+		return (noOfEvents+63)>>>6;
+	}
+
+	/* Creates an empty set wide enough to hold the given number of events */
+	public static long[] create(int noOfEvents){
+		return new long[words(noOfEvents)];
+	}
+
+	/* Adds the given event to the set */
+	public static void add(long[] set, int event){
+		set[event>>>6]|=1L<<event;
+	}
+
+	/* Removes the given event from the set */
+	public static void remove(long[] set, int event){
+		set[event>>>6]&=~(1L<<event);
+	}
+
+	/* Returns true if the given event is a member of the set */
+	public static boolean contains(long[] set, int event){
+		return (set[event>>>6]&(1L<<event))!=0;
+	}
+
+	/* Returns the number of events in the set */
+	public static int size(long[] set){
+		int size=0;
+		for(int i=0;i<set.length;i++){
+			size+=Long.bitCount(set[i]);
+		}
+		return size;
+	}
+
+	/* Returns the lowest event in the set which is greater than or equal
+	 * to the given event, or -1 if there is no such event - this allows
+	 * the members of a set to be iterated over in index order */
+	public static int next(long[] set, int from){
+		int word=from>>>6;
+		if(word>=set.length){
+			return -1;
+		}
+
+		/* Mask off the bits below the starting event in the first word */
+		long bits=set[word]&(-1L<<from);
+		while(true){
+			if(bits!=0){
+				return (word<<6)+Long.numberOfTrailingZeros(bits);
+			}
+			word++;
+			if(word==set.length){
+				return -1;
+			}
+			bits=set[word];
+		}
+	}
+
+	/* Returns true if both sets contain exactly the same events */
+	public static boolean equal(long[] a, long[] b){
+		for(int i=0;i<a.length;i++){
+			if(a[i]!=b[i]){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/* Adds every event of the other set to the set */
+	public static void addAll(long[] set, long[] other){
+		for(int i=0;i<set.length;i++){
+			set[i]|=other[i];
+		}
+	}
+
+	/* Removes every event of the other set from the set */
+	public static void removeAll(long[] set, long[] other){
+		for(int i=0;i<set.length;i++){
+			set[i]&=~other[i];
+		}
+	}
+
+	/* Returns true if the two sets have any event in common */
+	public static boolean intersects(long[] a, long[] b){
+		for(int i=0;i<a.length;i++){
+			if((a[i]&b[i])!=0){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/* Returns true if the set contains no events */
+	public static boolean isEmpty(long[] set){
+		for(int i=0;i<set.length;i++){
+			if(set[i]!=0){
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -1,10 +1,6 @@
 package Model;
-import java.util.LinkedList;
 
-import GUI.ControlPanel;
-import GUI.GraphicsPanel;
-import GUI.OutputFrame;
-import Main.GlobalAttributes;
+import java.util.ArrayList;
 
 /* This class encapsulates all data and operations that define a
  * Prime Event Structure - this class is never instantiated.
@@ -13,68 +9,117 @@ import Main.GlobalAttributes;
  * Internally, events are referred to by their index in a 1D array,
  * this is invisible to the user however, who sees them as literal
  * string-named objects. The mapping from names to indexes is 1:1
- * and is dependent on the order in which the events are declared.
- * This class also contains logic for parsing the user's own 
- * definition of an Event Structure.
+ * and is dependent on the order in which the events are declared - it
+ * is held in a symbol table which is built once during parsing.
+ * All commentary is written to the display, so this class can be used
+ * with or without the GUI.
  */
 public class EventStructure{
     
-    /* List of event names */
+    /* List of event names, indexed by internal ID - names are only
+     * retrieved from here when rendering or writing to the console */
     public static String[] events=new String[0];
     
+    /* Symbol table mapping each event name to its internal ID */
+    static SymbolTable symbols=new SymbolTable();
+    
+    /* Receives the commentary and changes of state - replaced by the
+     * GUI with one which writes to its windows */
+    public static Display display=Display.NONE;
+    
+    /* The largest structure whose relationships are listed event by
+     * event on the console when it is loaded */
+    static final int MAX_LISTED_EVENTS=1000;
+    
     /* Corresponding array of threads - one per event */
     static EventThread[] eventThreads=new EventThread[0];
     
-    /* 1D array to track which events have been completed */
-    public static boolean[] completed = new boolean[0];
+    /* Set of events which have been completed (see EventSet) */
+    public static long[] completed = new long[0];
     
-    /* 1D array to track which events are/aren't eventually allowed */
-    public static boolean[] eventuallyAllowed = new boolean[0];
+    /* Set of events which have been locked out by a conflict, i.e.
+     * those which are no longer eventually allowed */
+    public static long[] lockedOut = new long[0];
     
-    /* 2D matrix to store the precede relationship between events, i.e. a lookup matrix.
-     * 1 for an entry means that this row event precedes this column event
+    /* The precedes relation between events, i.e. the row event precedes
+     * each of the events it is related to. Relations are stored sparsely or
+     * densely depending on how many pairs they contain (see Relation)
      */
-    public static boolean[][] precedes=new boolean[0][0];
+    public static Relation precedes=Relation.empty();
     
-    /* 2D matrix to store the succeeds relationship between events, i.e. a lookup matrix.
-     * 1 for an entry means that this row event succeeds this column event. This is
-     * derivable from the above matrix, but is pre-calculated in order to speed up calculating
-     * whether an event can be completed
+    /* The succeeds relation between events, i.e. the row event succeeds each
+     * of the events it is related to. This is derivable from the above relation,
+     * but is pre-calculated in order to speed up calculating whether an event
+     * can be completed - the row of an event is exactly the set of events which
+     * must be completed before it
      */
-    static boolean[][] succeeds=new boolean[0][0];
+    static Relation succeeds=Relation.empty();
     
-    /* 2D matrix to store the conflict relationship between events, i.e. a lookup matrix.
-     * 1 for an entry means that this row event is in conflict with this column event.
+    /* The conflict relation between events, which is symmetric
      */
-    public static boolean[][] conflicts=new boolean[0][0];
+    public static Relation conflicts=Relation.empty();
+    
+    /* The transitive closures of the above relations - the inherited
+     * conflicts are computed when the structure is loaded, and the causes
+     * and consequences when they are needed */
+    public static CausalClosure closure=new CausalClosure(precedes,succeeds,conflicts);
+    
+    /* The classification of every pair of events (causal, conflicting or
+     * concurrent) and the immediate conflicts, derived from the closures */
+    public static EventRelations relations=new EventRelations(succeeds,conflicts,closure);
+    
+    /* The classes of interchangeable events, whose symmetries can be
+     * used to explore the state space up to isomorphism */
+    public static EventSymmetry symmetry=new EventSymmetry(precedes,succeeds,conflicts);
     
-    /* Initialises all arrays/matrices for the given array of event names -
-     * does not store actual relationships */
-    static void initialise(String[] n){
+    /* Initialises all arrays/matrices for the events of the given definition
+     * and stores the relationships which it defines. The structure is then
+     * validated (see Validator) - the returned list describes any problems
+     * which mean that the structure must be rejected */
+    static ArrayList<String> initialise(Definition definition){
     	
-    	/* Store the list of event names */
+    	/* Store the symbol table and the list of event names */
+    	symbols=definition.symbols;
+        String[] n=symbols.names();
         events=n;
         
         /* Set the arrays/matrices to the correct length */
-        completed=new boolean[n.length];
-        eventuallyAllowed=new boolean[n.length];
-        precedes=new boolean[n.length][n.length];
-        succeeds=new boolean[n.length][n.length];
-        conflicts = new boolean[n.length][n.length];
-        eventThreads=new EventThread[n.length];
+        completed=EventSet.create(n.length);
+        lockedOut=EventSet.create(n.length);
         
-        /* Initialise all arrays/matrices to default values */
-        for(int i=0;i<n.length;i++){
-            completed[i]=false;
-            eventuallyAllowed[i]=true;
-            
-            for(int j=0;j<n.length;j++){
-                precedes[i][j]=false;
-                succeeds[i][j]=false;
-                conflicts[i][j]=false;
-            }
-            
-            /* Creates a thread for each event */
+    	/* Build the precedes/succeeds relations from the list of pairs
+    	 * of events, the latter by reversing each pair */
+    	precedes=Relation.create(n.length,definition.precedes,true,false);
+    	succeeds=Relation.create(n.length,definition.precedes,false,true);
+    	
+    	/* Build the conflict relation from the list of pairs, relating
+    	 * each pair of events in both directions */
+    	conflicts=Relation.create(n.length,definition.conflicts,true,true);
+    	
+    	/* Causality must be free of cycles before its closure can be
+    	 * computed */
+    	ArrayList<String> problems=Validator.findCycles(precedes,n);
+    	if(!problems.isEmpty()){
+    		return problems;
+    	}
+    	
+    	/* Compute the causes, consequences and inherited conflicts of
+    	 * every event from the relations, and check that no event is in
+    	 * conflict with itself */
+    	closure=new CausalClosure(precedes,succeeds,conflicts);
+    	problems=Validator.findSelfConflicts(closure,succeeds,conflicts,n);
+    	if(!problems.isEmpty()){
+    		return problems;
+    	}
+    	relations=new EventRelations(succeeds,conflicts,closure);
+    	symmetry=new EventSymmetry(precedes,succeeds,conflicts);
+    	return problems;
+    }
+    
+    /* Creates and starts a (paused) thread for each event */
+    static void startThreads(){
+        eventThreads=new EventThread[events.length];
+        for(int i=0;i<eventThreads.length;i++){
             eventThreads[i]=new EventThread(i);
             eventThreads[i].start();
         }
@@ -84,20 +129,22 @@ public class EventStructure{
 	public static void unload() {
 		
 		/* Signals all threads to terminate */
-		for(int i=0;i<events.length;i++){	
+		for(int i=0;i<eventThreads.length;i++){	
             eventThreads[i].kill=true;
             eventThreads[i].paused=false;
         }
         
 		/* Initialises all arrays to empty */
 	    events=new String[0];
-	    completed = new boolean[0];
-	    eventuallyAllowed = new boolean[0];
-	    precedes=new boolean[0][0];
-	    succeeds=new boolean[0][0];
-	    conflicts=new boolean[0][0];
-        EventStructureRender.graphPositions=new int[0];
-    	TransitionGraphRender.transitionPositions=new int[0];
+	    symbols=new SymbolTable();
+	    completed = new long[0];
+	    lockedOut = new long[0];
+	    precedes=Relation.empty();
+	    succeeds=Relation.empty();
+	    conflicts=Relation.empty();
+	    closure=new CausalClosure(precedes,succeeds,conflicts);
+	    relations=new EventRelations(succeeds,conflicts,closure);
+	    symmetry=new EventSymmetry(precedes,succeeds,conflicts);
 		
     	/* Waits for all threads to end of their own accord
     	 * before returning swing control back to the user
@@ -118,12 +165,13 @@ public class EventStructure{
      * this resets the allowed/completed arrays and threads
      */
     public static void resetThreads(){
-        for(int i=0;i<events.length;i++){
+    	
+    	/* Reset the completed and locked out sets */
+    	completed=EventSet.create(events.length);
+    	lockedOut=EventSet.create(events.length);
+    	
+        for(int i=0;i<eventThreads.length;i++){
         	
-        	/* Reset the arrays */
-            eventuallyAllowed[i]=true;
-            completed[i]=false;
-            
             /* Send the kill signal and unpause all threads
              * This allows the threads to finish of their
              * own accord when given the opportunity
@@ -150,55 +198,19 @@ public class EventStructure{
 	        eventThreads[i].start();
         }
         
-        /* Resets the transition graph trace
-         * if one exists */
-        if(GlobalAttributes.transitions){
-        	TransitionGraph.resetTrace();
-        }
-        
-        /* Cause an on-screen repaint */
-        GraphicsPanel.global.repaint();
+        /* Tell the display, which resets the transition graph
+         * trace if one exists */
+        display.reset();
     }
     
-    /* Set the first event to be a precedes relation
-     * of the second event - also does the opposite for
-     * the reverse
-     */
-    static void setPrecedes(String name1, String name2){
-        precedes[lookup(name1)][lookup(name2)]=true;
-        succeeds[lookup(name2)][lookup(name1)]=true;
-    }
-
     /* Returns the internal integer index
-     * of the event with the given string name
+     * of the event with the given string name,
+     * or -1 if there is no such event
      */
     static int lookup(String name) {
-    	
-    	/* Iterate through all events */
-        for(int i=0;i<events.length;i++){
-        	
-        	/* Return the index if it matches
-        	 * the given string
-        	 */
-            if(events[i].equals(name)){
-                return i;
-            }
-        }
-        
-        /* Else return a default code - this
-         * stops the compiler from complaining
-         */
-        return -1;
+    	return symbols.lookup(name);
     }
 
-    /* Sets both events to be in conflict with each
-     * other
-     */
-    static void setConflicts(String name1, String name2){
-        conflicts[lookup(name1)][lookup(name2)]=true;
-        conflicts[lookup(name2)][lookup(name1)]=true;
-    }
-    
     /* This sends the signal to all threads to pause
      * This won't interrupt a currently processing event
      * and will wait until it has completed
@@ -224,359 +236,172 @@ public class EventStructure{
      * the event has become locked out or has been completed */
     synchronized static boolean completeEvent(int event) {
     	
-        OutputFrame.global.write("Event: "+events[event]+ " is attempting");
+        display.write("Event: "+events[event]+ " is attempting");
         
         /* Check if the event is locked out */
-        if(!eventuallyAllowed[event]){
-            OutputFrame.global.write("\tEvent locked out");
+        if(EventSet.contains(lockedOut,event)){
+            display.write("\tEvent locked out");
             
             /* If the event has been locked out - then it should
              * not continue attempting to execute */
             return false;
         }
         
-        /* Check if preceding events have been completed */
-        for(int i=0; i<events.length;i++){
-            if(succeeds[event][i]){
-                if(completed[i]){
-                    OutputFrame.global.write("\tEnabled by event: "+events[i]+" which has been " +
-                    		"completed");
-                }
-                else{
-                    OutputFrame.global.write("\tEnabled by event: "+events[i]+" which has not been "+
-                            "completed");
-                    
-                    /* The event has not been completed so it should
-                     * attempt to keep executing */
-                    return true;
-                }
+        /* Check if preceding events have been completed - only the
+         * events which this event succeeds are visited */
+        for(int i=succeeds.next(event,0);i!=-1;i=succeeds.next(event,i+1)){
+            if(EventSet.contains(completed,i)){
+                display.write("\tEnabled by event: "+events[i]+" which has been " +
+                		"completed");
+            }
+            else{
+                display.write("\tEnabled by event: "+events[i]+" which has not been "+
+                        "completed");
+                
+                /* The event has not been completed so it should
+                 * attempt to keep executing */
+                return true;
             }
         }
         
         /* If successful, set the corresponding flag for this event's
          * completion to true */
-        completed[event]=true;
-        OutputFrame.global.write("\tEvent completed");
+        EventSet.add(completed,event);
+        display.write("\tEvent completed");
         
-        /* Check the completed event against
-         * all other events
+        /* Lock out every event which is in conflict with the completed
+         * event, including those which inherit the conflict, with a single
+         * OR of its precomputed conflict set (see CausalClosure) - the
+         * events which this newly locks out are reported below
          */
-        for(int i=0;i<events.length;i++){
-        	
-        	/* If the other event is in conflict, disable the allowed flag
-        	 * for the second event
-        	 */
-            if(conflicts[event][i]){
-                OutputFrame.global.write("\tIn conflict with event: "+events[i]);
-                eventuallyAllowed[i]=false;
-                OutputFrame.global.write("\tEvent: "+events[i]+" disabled");
-                
-                /* Recursively disable any successive events of this disabled
-                 * event */
-                inheritConflict(i);
-            }
-        }
-        
-        /* Only perform execution trace if we are in transition graph
-         * mode */
-        if(GlobalAttributes.transitions){
+        long[] inherited=closure.conflicts(event).clone();
+        EventSet.removeAll(inherited,lockedOut);
+        EventSet.addAll(lockedOut,inherited);
+        conflicts.removeRow(event,inherited);
         
-	        /* Update the execution trace for the transition graph */
-	        TransitionGraph.updateTrace(event);
+        /* Report each event which the completed event is directly in
+         * conflict with */
+        for(int i=conflicts.next(event,0);i!=-1;i=conflicts.next(event,i+1)){
+            display.write("\tIn conflict with event: "+events[i]);
+            display.write("\tEvent: "+events[i]+" disabled");
+            
+            /* Followed by any successive events of this disabled event
+             * which have inherited the conflict */
+            long[] successors=closure.consequences(i);
+            for(int j=EventSet.next(successors,0);j!=-1;j=EventSet.next(successors,j+1)){
+            	if(EventSet.contains(inherited,j)){
+            		EventSet.remove(inherited,j);
+            		display.write("\tEvent: "+events[j]+" has inherited event: "+
+            				events[i]+"'s conflict");
+            	}
+            }
         }
         
-        /* Force a repaint of the visualisation */
-        GraphicsPanel.global.repaint();
+        /* Tell the display, which updates the execution trace if we
+         * are in transition graph mode */
+        display.eventCompleted(event);
         
         /* The event has succeeded so it should no longer attempt to keep
          * executing */
         return false;
     }
 
-    /* Recursively disables any events that succeed the specified disabled
-     * event
+    /* Loads a parsed event structure into memory, ready to be
+     * executed by its threads - returns false if the structure was
+     * rejected, in which case nothing is loaded
      */
-    static void inheritConflict(int event) {
-    	
-    	/* Iterate through all events */
-        for(int i=0;i<events.length;i++){
-        	
-        	/* If the other event is a successor of the original event,
-        	 * disable it and recursively continue the trace
-        	 */
-            if(precedes[event][i]){
-                eventuallyAllowed[i]=false;
-                OutputFrame.global.write("\tEvent: "+events[i]+" has inherited event: "+
-                        events[event]+"'s conflict");
-                inheritConflict(i);
-            }
-        }
+    public static boolean load(Definition definition) {
+    	return load(definition,true);
     }
-
-    /* Loads the specified event structure from the control panel's input
-     * area into memory 
+    
+    /* Loads a parsed event structure into memory - without threads the
+     * structure can be analysed but not executed, which is how it is used
+     * when running without a display. A structure which fails validation
+     * is rejected before any threads are started, and the problems are
+     * added to the definition's errors
      */
-    public static void load() {
-        OutputFrame.global.write("Clearing event matrices");
+    public static boolean load(Definition definition, boolean threads) {
+        display.write("Clearing event matrices");
         
         /* Clear the existing event data */
         unload();
         
-        /* Parse the input area from the control panel
-         * and generate the event structure */
-        parseText();
+    	/* Report any errors found by the parser */
+    	for(int i=0;i<definition.errors.size();i++){
+    		display.write(definition.errors.get(i));
+    	}
+    	
+    	/* Initialises the event structure with the definition */
+    	ArrayList<String> problems=initialise(definition);
+    	if(!problems.isEmpty()){
+    		for(int i=0;i<problems.size();i++){
+    			display.write(problems.get(i));
+    			definition.errors.add(problems.get(i));
+    		}
+    		display.write("Event structure rejected");
+    		unload();
+    		return false;
+    	}
+    	
+    	/* Only a valid structure is given its threads */
+    	if(threads){
+    		startThreads();
+    	}
         
         /* Output useful information about the relationships 
-         * for each event by using the lookup matrix - this is
+         * for each event by using the relations - this is
          * done after all parsing rather than during. This is
          * less efficient but much easier to read for the user, 
          * as information pertaining to each event is unlikely to
-         * be relevantly ordered when it is parsed
+         * be relevantly ordered when it is parsed. Structures
+         * too large to read through (typically loaded from a file)
+         * are only summarised
          */
-        for(int i=0;i<events.length;i++){
-            OutputFrame.global.write("Created event: "+events[i]);
-            for(int j=0;j<events.length;j++){
-                if(precedes[i][j]){
-                    OutputFrame.global.write("\tPrecedes event: "+events[j]);
-                }
-                if(succeeds[i][j]){
-                    OutputFrame.global.write("\tSucceeds event: "+events[j]);
-                }
-                if(conflicts[i][j]){
-                    OutputFrame.global.write("\tConflicts with event: "+events[j]);
+        if(events.length>MAX_LISTED_EVENTS){
+        	display.write("Created "+events.length+" events");
+        }
+        else{
+            for(int i=0;i<events.length;i++){
+                display.write("Created event: "+events[i]);
+                
+                /* Walk the three rows together, so that the events related
+                 * to this one are listed in order of their IDs */
+                int p=precedes.next(i,0);
+                int s=succeeds.next(i,0);
+                int c=conflicts.next(i,0);
+                while(p!=-1 || s!=-1 || c!=-1){
+                	int j=Integer.MAX_VALUE;
+                	if(p!=-1){
+                		j=p;
+                	}
+                	if(s!=-1){
+                		j=Math.min(j,s);
+                	}
+                	if(c!=-1){
+                		j=Math.min(j,c);
+                	}
+                    if(p==j){
+                        display.write("\tPrecedes event: "+events[j]);
+                        p=precedes.next(i,j+1);
+                    }
+                    if(s==j){
+                        display.write("\tSucceeds event: "+events[j]);
+                        s=succeeds.next(i,j+1);
+                    }
+                    if(c==j){
+                        display.write("\tConflicts with event: "+events[j]);
+                        c=conflicts.next(i,j+1);
+                    }
                 }
             }
         }
         
-        /* If we are in transition graph mode, then generate the graph
-         * and determine on-screen positions */
-        if(GlobalAttributes.renderMode==2){
-        	TransitionGraph.buildGraph();
-        	GraphicsPanel.global.calculatePositions();
+        /* Report the symmetries, if there are any */
+        if(!symmetry.isTrivial()){
+        	display.write("Found "+symmetry.groupOrder()+" symmetries ("+symmetry.classes()+
+        			" classes of interchangeable events)");
         }
-        
-        /* Calculate on-screen positions for the graphical nodes */
-        GraphicsPanel.global.calculatePositions();
-        
-        /* Force a repaint of the visualisation */
-        GraphicsPanel.global.repaint();
-    }    
-    
-    /* Parses the input area of the control panel and generates the
-     * corresponding event structure. The routine tries its best to continue
-     * in the face of input errors on part of the user
-     * Events must be declared atomically before they are used as part of
-     * causality or conflict relations
-     */
-    private static void parseText(){
-    	
-    	/* Retrieve the text and remove newline characters or empty space */
-    	String text=ControlPanel.global.inputArea.getText();
-    	text=text.replaceAll(" ", "");
-    	text=text.replaceAll("\\n","");
-    	
-    	OutputFrame.global.write("Parsing input");
-    	
-    	/* Separate into individual expressions */
-    	String[] expressions=text.split(";");
-    	
-    	/* Lists for adding events, causality and conflicts */
-    	LinkedList<String> events=new LinkedList<String>();
-    	LinkedList<String> precedes=new LinkedList<String>();
-    	LinkedList<String> conflicts=new LinkedList<String>();
-    	
-    	/* For every expression*/
-    	for(int i=0;i<expressions.length;i++){
-    		
-    		/* Attempt to break into a causality relation with two arguments*/
-    		String[] precedesNames=expressions[i].split("<");
-    		
-    		/* If the result is length 1 - then it is not a causality relation */
-    		if(precedesNames.length==1){
-    			
-    			/* Attempt to break into a conflict relation with two arguments */
-    			String[] conflictsNames=expressions[i].split("#");
-    			
-    			/* If the result is length 1 - then it is simply an atomic event defined */
-    			if(conflictsNames.length==1){
-    				
-    				/* Retrieve the name of the event */
-    				String eventName=conflictsNames[0];
-    				
-    				/* Assume it is a valid name */
-    				Boolean valid=true;
-    				
-    				/* Check that each character is valid, must be 0-9, A-Z or a-z */
-    				for(int j=0; j<eventName.length();j++){
-    					char currentChar=eventName.charAt(j);
-    					if(!(currentChar>='0' && currentChar<='9') && !(currentChar>='A' && currentChar<='Z') && !(currentChar>='a' && currentChar<='z')){
-    						valid=false;
-    						break;
-    					}
-    				}
-    				
-    				/* If the string is valid - check against existing names */
-    				if(valid){
-    					
-    					/* Assume that it does not exist */
-    					Boolean exists=false;
-    					
-    					/* Check against all currently parsed events */
-    					for(int j=0; j<events.size();j++){
-    						if(events.get(j).equals(eventName)){
-    							exists=true;
-    							break;
-    						}
-    					}
-    					
-    					/* If the event does not already exist - add it to the list */
-    					if(!exists){
-    						events.add(eventName);
-    					}
-    					
-    					/* If it does exist, report an error */
-    					else{
-    	    		    	OutputFrame.global.write("Event already exists");
-    					}
-    				}
-    				
-    				/* Otherwise throw an error */
-    				else{
-        		    	OutputFrame.global.write("Invalid event - Use only ASCII 0-9, A-Z or a-z");	
-    				}
-    			}
-    			
-    			/* If the result is length 2 - then it is a conflict relation */
-    			else if(conflictsNames.length==2){
-    				
-    				/* Retrieve the two arguments */
-    				String conflicts1=conflictsNames[0];
-    				String conflicts2=conflictsNames[1];
-        			
-        			/* Check arguments for difference */
-        			if(conflicts1.equals(conflicts2)){
-        		    	OutputFrame.global.write("Invalid conflict relation - arguments must be distinct");
-        			}
-        			else{
-        				
-        				/* Assume both arguments are invalid */
-        				boolean oneValid=false;
-            			boolean twoValid=false;
-            			
-	    				/* Check against all currently parsed events */
-	    				for(int j=0; j<events.size();j++){
-	    					
-	    					/* If the first argument is found, set its flag to true */
-	    					if(events.get(j).equals(conflicts1)){
-	    						oneValid=true;
-	    					}
-	    					
-	    					/* If the second argument is found, set its flag to true */
-	    					else if(events.get(j).equals(conflicts2)){
-	    						twoValid=true;
-	    					}
-	    					
-	    					/* If both arguments have been validated, then break out
-	    					 * of the loop */
-	    					if(oneValid && twoValid){
-	    						break;
-	    					}
-	    				}
-	    				
-	    				/* If both arguments are valid, then add the two
-	    				 * events to the list of conflicted pairs */
-	    				if(oneValid && twoValid){
-	    					conflicts.add(conflicts1);
-	    					conflicts.add(conflicts2);
-	    				}
-	    				else{
-	        		    	OutputFrame.global.write("Invalid conflict relation - one or more events are undefined");
-	    				}
-        			}
-    			}
-    			
-    			/* If the result is longer - then it is an error as this is not permitted */
-    			else{
-    		    	OutputFrame.global.write("Parser error, too many arguments for # relation");
-    			}
-    		}
-    		
-    		/* If the result is length 2 - then it is a causality relation */
-    		else if(precedesNames.length==2){
-    			
-    			/* Retrieve the two arguments */
-    			String precedes1=precedesNames[0];
-    			String precedes2=precedesNames[1];
-    			
-    			/* Check arguments for difference */
-    			if(precedes1.equals(precedes2)){
-    		    	OutputFrame.global.write("Invalid conflict relation - arguments must be distinct");
-    			}
-    			else{
-    				
-    				/* Assume both arguments are invalid */
-    				boolean oneValid=false;
-        			boolean twoValid=false;
-    			
-        			/* Check against all currently parsed events */
-					for(int j=0; j<events.size();j++){
-						
-						/* If the first argument is found, set its flag to true */
-						if(events.get(j).equals(precedes1)){
-							oneValid=true;
-						}
-						
-						/* If the second argument is found, set its flag to true */
-						if(events.get(j).equals(precedes2)){
-							twoValid=true;
-						}
-						
-    					/* If both arguments have been validated, then break out
-    					 * of the loop */
-						if(oneValid && twoValid){
-							break;
-						}
-					}
-					
-    				/* If both arguments are valid, then add the two
-    				 * events to the list of causality pairs */
-					if(oneValid && twoValid){
-						precedes.add(precedes1);
-						precedes.add(precedes2);
-					}
-					else{
-	    		    	OutputFrame.global.write("Invalid causality relation - one or more events are undefined");
-					}
-    			}
-    			
-    		}
-    		
-    		/* If the result is longer - then it is an error as this is not permitted */
-    		else{
-		    	OutputFrame.global.write("Parser error, too many arguments for < relation");
-    		}
-    	}
-    	
-    	/* Convert the list of names to an array */
-    	String[] eventNames=new String[events.size()];
-    	for(int i=0;i<eventNames.length;i++){
-    		eventNames[i]=events.get(i);
-    	}
-    	
-    	/* Initialises the event structure with the list of names */
-    	initialise(eventNames);
-    	
-    	/* Set the precedes/succeeds matrices with the pairs of events
-    	 * by retrieving them from the list of pairs */
-    	for(int i=0;i<precedes.size();i+=2){
-    		setPrecedes(precedes.get(i),precedes.get(i+1));
-    	}
-    	
-    	/* Set the conflicts matrix with the pairs of events
-    	 * by retrieving them from the list of pairs */
-    	for(int i=0;i<conflicts.size();i+=2){
-    		setConflicts(conflicts.get(i),conflicts.get(i+1));
-    	}
+        return true;
     }
     
-}
+}
\ No newline at end of file
@@ -47,31 +47,32 @@ public class EventStructureRender{
 		Stroke thindashed = new BasicStroke(2.0f,BasicStroke.CAP_BUTT,
 				BasicStroke.JOIN_BEVEL, 1.0f, new float[] { 4.0f,8.0f},0.0f);
 
-		/* For every pair of nodes */
+		/* For every event */
 		for(int i=0;i<graphPositions.length;i+=2){
-			for(int j=0;j<EventStructure.events.length*2;j+=2){
-
-				/* If the first event precedes the second */
-				if(EventStructure.precedes[i/2][j/2]){
-
-					/* Set the line stroke to standard */
-					g2.setStroke(lineStroke);
-
-					/* Call the function to draw the connecting line */
-					drawLine(g2,(int)(((float)graphPositions[i]/100)*width), (int)(((float)graphPositions[i+1]/100)*height),
-							(int)(((float)graphPositions[j]/100)*width), (int)(((float)graphPositions[j+1]/100)*height));
-				}
-
-				/* If the first event is in conflict with the second */
-				if(EventStructure.conflicts[i/2][j/2]){
-
-					/* Set the line stroke to dashed */
-					g2.setStroke(thindashed);
-
-					/* Call the function to draw the connecting line */
-					drawLine(g2,(int)(((float)graphPositions[i]/100)*width), (int)(((float)graphPositions[i+1]/100)*height), 
-							(int)(((float)graphPositions[j]/100)*width), (int)(((float)graphPositions[j+1]/100)*height));
-				}
+			
+			/* Set the line stroke to standard */
+			g2.setStroke(lineStroke);
+			
+			/* For every event which the first event precedes */
+			for(int j=EventStructure.precedes.next(i/2,0);j!=-1;j=EventStructure.precedes.next(i/2,j+1)){
+
+				/* Call the function to draw the connecting line */
+				drawLine(g2,(int)(((float)graphPositions[i]/100)*width), (int)(((float)graphPositions[i+1]/100)*height),
+						(int)(((float)graphPositions[j*2]/100)*width), (int)(((float)graphPositions[j*2+1]/100)*height));
+			}
+			
+			/* Set the line stroke to dashed */
+			g2.setStroke(thindashed);
+
+			/* For every event which the first event is in conflict with - or only
+			 * those in immediate conflict with it, if redundant conflicts are hidden */
+			Relation conflicts=GlobalAttributes.immediateConflictsOnly?
+					EventStructure.relations.immediateConflicts():EventStructure.conflicts;
+			for(int j=conflicts.next(i/2,0);j!=-1;j=conflicts.next(i/2,j+1)){
+
+				/* Call the function to draw the connecting line */
+				drawLine(g2,(int)(((float)graphPositions[i]/100)*width), (int)(((float)graphPositions[i+1]/100)*height), 
+						(int)(((float)graphPositions[j*2]/100)*width), (int)(((float)graphPositions[j*2+1]/100)*height));
 			}
 		}
 
@@ -88,13 +89,13 @@ public class EventStructureRender{
 		for(int i=0;i<graphPositions.length;i+=2){
 
 			/* If the event is completed, set the colour to red */
-			if(EventStructure.completed[i/2]){
+			if(EventSet.contains(EventStructure.completed,i/2)){
 				g2.setColor(GlobalAttributes.completedColour);
 			}
 
 			/* If the event is allowed, but not completed, set the
 			 * colour to white */
-			else if(EventStructure.eventuallyAllowed[i/2]){
+			else if(!EventSet.contains(EventStructure.lockedOut,i/2)){
 				g2.setColor(Color.WHITE);
 			}
 
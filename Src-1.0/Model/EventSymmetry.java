@@ -0,0 +1,940 @@
+package Model;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+
+/* The symmetries of an event structure, found once when the structure is
+ * loaded. Most come from interchangeable events: two events are twins if they
+ * have the same direct causes, the same direct consequences and the same
+ * conflicts apart from with each other - swapping them then maps the structure
+ * onto itself, so any configuration can be mapped onto another with the same
+ * number of events from each class of twins without changing what can happen
+ * next. The events of a class are either all in conflict with each other, in
+ * which case a configuration holds at most one of them, or none are.
+ * The classes are found by grouping the events on hashes of their rows of the
+ * three relations and then comparing the rows of events with equal hashes, so
+ * this takes time linear in the size of the relations.
+ * The other symmetries move events with different neighbours, such as the
+ * reflection of a path of conflicts a#b, b#c, c#d or the rotations of a ring.
+ * They are found on the quotient of the structure which has one vertex (cell)
+ * per class of twins or other event, by the individualisation and refinement
+ * search used for graph automorphisms: the cells are split by the numbers of
+ * causes, consequences and conflicts they have in each other part until no
+ * part can be split further, and then each part with more than one cell is
+ * split further by singling out one cell after another. Where two ways of
+ * singling out cells end in the same refined shape, matching the cells of the
+ * two gives a candidate, which is kept if it maps every relation onto itself.
+ * Following the first way down and, at each step, looking for a candidate
+ * which singles out each other cell of the part (unless a candidate already
+ * found maps the first cell onto it) gives a set of symmetries which generate
+ * all of them. The search is only made on quotients of up to MAX_CELLS cells
+ * and within MAX_REFINEMENTS refinements, and the group the symmetries
+ * generate is listed in full, so it is kept to at most MAX_GROUP members by
+ * leaving out any symmetry which would take it past that - the group used is
+ * then a part of the whole, which still gives exact counts but fewer savings.
+ * Every configuration has a canonical representative: of the configurations
+ * the listed symmetries map it onto, the one whose numbers of events in the
+ * cells, taken in order, are lowest, holding the lowest numbered events of
+ * each class of twins. The configurations with the same
+ * representative (its orbit) number the product over the classes of twins of
+ * the ways of choosing that many events from the class, times the number of
+ * different ways the listed symmetries move the cells' numbers of events.
+ * Exploring only the representatives (see SymmetricStateSpace) still gives
+ * exact counts of the whole state space when each is weighted by its orbit
+ * size */
+public class EventSymmetry {
+
+	/* The classes of twins with more than one member - each is in
+	 * ascending order */
+	int[][] classes;
+
+	/* Whether the members of each class are in conflict with each other */
+	boolean[] conflicting;
+
+	/* The number of ways of choosing each number of members of each class */
+	BigInteger[][] choices;
+
+	/* The most cells of a quotient searched for symmetries other than
+	 * swapping twins, the most refinements made in the search, and the most
+	 * members of the group listed */
+	static final int MAX_CELLS=1024;
+	static final int MAX_REFINEMENTS=20000;
+	static final int MAX_GROUP=1024;
+
+	/* The cells of the quotient - each class of twins and each other event,
+	 * in order of their lowest event - and the cell of each event */
+	int[][] cells;
+	int[] cellOf;
+
+	/* The class of twins of each cell, or -1 for a single event */
+	int[] classOf;
+
+	/* The listed symmetries of the quotient, each mapping every cell onto
+	 * another of the same size - the first leaves every cell in place */
+	int[][] permutations;
+
+	/* The cells moved by any listed symmetry, in ascending order */
+	int[] support;
+
+	/* Set if the search for symmetries of the quotient was finished and all
+	 * of the group it found is listed */
+	boolean complete=true;
+
+	/* Finds the classes of twins of the given relations - succeeds must be
+	 * the reverse of precedes and conflicts must be symmetric */
+	public EventSymmetry(Relation precedes, Relation succeeds, Relation conflicts){
+		int size=precedes.size();
+		Random random=new Random(size);
+		long[] keys=new long[size];
+		for(int i=0;i<size;i++){
+			keys[i]=random.nextLong();
+		}
+
+		/* Hash each event's rows, combining them into one key */
+		long[] hashes=new long[size];
+		for(int e=0;e<size;e++){
+			hashes[e]=hash(succeeds,e,keys)^Long.rotateLeft(hash(precedes,e,keys),21)^
+					Long.rotateLeft(hash(conflicts,e,keys),42);
+		}
+
+		/* Events which are not in conflict with each other are twins if all
+		 * of their rows are the same. Events which are in conflict are twins
+		 * if their rows of conflicts are the same once each includes itself,
+		 * so they are found in a second pass which adds each event's own key
+		 * to its hash - no event can be in a class of each kind */
+		ArrayList<int[]> found=new ArrayList<int[]>();
+		boolean[] placed=new boolean[size];
+		for(int pass=0;pass<2;pass++){
+			boolean closed=(pass==1);
+			HashMap<Long,ArrayList<IntList>> groups=new HashMap<Long,ArrayList<IntList>>();
+			for(int e=0;e<size;e++){
+				if(placed[e]){
+					continue;
+				}
+				long hash=closed?hashes[e]^Long.rotateLeft(keys[e],42):hashes[e];
+				ArrayList<IntList> bucket=groups.get(hash);
+				if(bucket==null){
+					bucket=new ArrayList<IntList>();
+					groups.put(hash,bucket);
+				}
+
+				/* Join the first group whose rows match exactly */
+				IntList group=null;
+				for(int i=0;i<bucket.size() && group==null;i++){
+					int other=bucket.get(i).get(0);
+					if(sameRow(succeeds,e,other,false) && sameRow(precedes,e,other,false) &&
+							sameRow(conflicts,e,other,closed)){
+						group=bucket.get(i);
+					}
+				}
+				if(group==null){
+					group=new IntList();
+					bucket.add(group);
+				}
+				group.add(e);
+			}
+
+			/* Groups are filled in ascending order of event, so are already sorted */
+			for(ArrayList<IntList> bucket:groups.values()){
+				for(int i=0;i<bucket.size();i++){
+					IntList group=bucket.get(i);
+					if(group.size()>1){
+						found.add(group.toArray());
+						for(int j=0;j<group.size();j++){
+							placed[group.get(j)]=true;
+						}
+					}
+				}
+			}
+		}
+
+		/* List the classes in order of their lowest event, so that the
+		 * order does not depend on the hashes */
+		found.sort(new Comparator<int[]>(){
+			@Override
+			public int compare(int[] a, int[] b){
+				return Integer.compare(a[0],b[0]);
+			}
+		});
+		classes=new int[found.size()][];
+		conflicting=new boolean[found.size()];
+		choices=new BigInteger[found.size()][];
+		for(int c=0;c<classes.length;c++){
+			classes[c]=found.get(c);
+			conflicting[c]=conflicts.get(classes[c][0],classes[c][1]);
+			choices[c]=binomials(classes[c].length);
+		}
+
+		/* Collapse each class of twins into one cell */
+		cellOf=new int[size];
+		Arrays.fill(cellOf,-1);
+		ArrayList<int[]> quotient=new ArrayList<int[]>();
+		IntList owners=new IntList();
+		int nextClass=0;
+		for(int e=0;e<size;e++){
+			if(cellOf[e]!=-1){
+				continue;
+			}
+			int[] members=(nextClass<classes.length && classes[nextClass][0]==e)?classes[nextClass]:new int[]{e};
+			for(int i=0;i<members.length;i++){
+				cellOf[members[i]]=quotient.size();
+			}
+			owners.add(members.length>1?nextClass++:-1);
+			quotient.add(members);
+		}
+		cells=quotient.toArray(new int[quotient.size()][]);
+		classOf=owners.toArray();
+
+		/* Search the quotient for the remaining symmetries */
+		permutations=new int[][]{identity(cells.length)};
+		if(cells.length>MAX_CELLS){
+			complete=false;
+		}
+		else if(cells.length>1){
+			AutomorphismSearch search=new AutomorphismSearch(this,precedes,succeeds,conflicts);
+			search.run();
+			permutations=search.group.toArray(new int[search.group.size()][]);
+			complete=search.complete;
+		}
+		boolean[] moved=new boolean[cells.length];
+		IntList support=new IntList();
+		for(int i=1;i<permutations.length;i++){
+			for(int c=0;c<cells.length;c++){
+				moved[c]|=(permutations[i][c]!=c);
+			}
+		}
+		for(int c=0;c<cells.length;c++){
+			if(moved[c]){
+				support.add(c);
+			}
+		}
+		this.support=support.toArray();
+	}
+
+	/* Returns the permutation which leaves each of the given number of
+	 * items in place */
+	static int[] identity(int size){
+		int[] permutation=new int[size];
+		for(int i=0;i<size;i++){
+			permutation[i]=i;
+		}
+		return permutation;
+	}
+
+	/* Returns the XOR of the keys of the events in the row */
+	static long hash(Relation relation, int event, long[] keys){
+		long hash=0;
+		for(int i=relation.next(event,0);i!=-1;i=relation.next(event,i+1)){
+			hash^=keys[i];
+		}
+		return hash;
+	}
+
+	/* Returns true if the two events have the same row of the relation -
+	 * if closed, each row is taken to include its own event. The rows are
+	 * walked together in ascending order, merging in each event itself */
+	static boolean sameRow(Relation relation, int a, int b, boolean closed){
+		int i=relation.next(a,0);
+		int j=relation.next(b,0);
+		int selfA=closed?a:-1;
+		int selfB=closed?b:-1;
+		while(true){
+			int nextA=lower(i,selfA);
+			int nextB=lower(j,selfB);
+			if(nextA!=nextB){
+				return false;
+			}
+			if(nextA==-1){
+				return true;
+			}
+			if(nextA==selfA){
+				selfA=-1;
+			}
+			else{
+				i=relation.next(a,i+1);
+			}
+			if(nextB==selfB){
+				selfB=-1;
+			}
+			else{
+				j=relation.next(b,j+1);
+			}
+		}
+	}
+
+	/* Returns the lower of two events, where -1 means none */
+	static int lower(int x, int y){
+		if(x==-1){
+			return y;
+		}
+		if(y==-1){
+			return x;
+		}
+		return Math.min(x,y);
+	}
+
+	/* Returns the number of ways of choosing each number of events from
+	 * a class of the given size */
+	static BigInteger[] binomials(int size){
+		BigInteger[] row=new BigInteger[size+1];
+		row[0]=BigInteger.ONE;
+		for(int k=1;k<=size;k++){
+			row[k]=row[k-1].multiply(BigInteger.valueOf(size-k+1)).divide(BigInteger.valueOf(k));
+		}
+		return row;
+	}
+
+	/* Returns true if there are no symmetries, so every orbit has one member */
+	public boolean isTrivial(){
+		return classes.length==0 && permutations.length==1;
+	}
+
+	/* Returns the number of classes of twins */
+	public int classes(){
+		return classes.length;
+	}
+
+	/* Returns the events of the class, in ascending order - the array must
+	 * not be modified */
+	public int[] members(int index){
+		return classes[index];
+	}
+
+	/* Returns true if the events of the class are in conflict with each other */
+	public boolean isConflicting(int index){
+		return conflicting[index];
+	}
+
+	/* Returns the number of listed symmetries which move events with
+	 * different neighbours, counting the one which moves nothing */
+	public int automorphisms(){
+		return permutations.length;
+	}
+
+	/* Returns the event the listed symmetry maps the event onto, taking the
+	 * members of each class of twins in order */
+	public int image(int index, int event){
+		int cell=cellOf[event];
+		int[] members=cells[cell];
+		int position=(members.length==1)?0:Arrays.binarySearch(members,event);
+		return cells[permutations[index][cell]][position];
+	}
+
+	/* Returns false if the search for symmetries other than swapping twins
+	 * was cut short by its limits, so that only some of them are used */
+	public boolean isComplete(){
+		return complete;
+	}
+
+	/* Returns the number of symmetries used - the product over the classes
+	 * of the number of orderings of their members, times the number of
+	 * listed symmetries of the quotient */
+	public BigInteger groupOrder(){
+		BigInteger order=BigInteger.valueOf(permutations.length);
+		for(int c=0;c<classes.length;c++){
+			for(int k=2;k<=classes[c].length;k++){
+				order=order.multiply(BigInteger.valueOf(k));
+			}
+		}
+		return order;
+	}
+
+	/* Returns the number of events of the configuration in each cell */
+	int[] counts(long[] configuration){
+		int[] counts=new int[cells.length];
+		for(int e=EventSet.next(configuration,0);e!=-1;e=EventSet.next(configuration,e+1)){
+			counts[cellOf[e]]++;
+		}
+		return counts;
+	}
+
+	/* Replaces the configuration with its canonical representative, and
+	 * returns true if it was changed */
+	public boolean canonicalise(long[] configuration){
+		boolean changed=false;
+		if(permutations.length==1){
+			for(int c=0;c<classes.length;c++){
+				int[] members=classes[c];
+				int count=0;
+				for(int i=0;i<members.length;i++){
+					if(EventSet.contains(configuration,members[i])){
+						changed|=(i!=count);
+						count++;
+					}
+				}
+				fill(configuration,members,count);
+			}
+			return changed;
+		}
+
+		/* Find the lowest numbers of events in the moved cells which any
+		 * listed symmetry gives */
+		int[] counts=counts(configuration);
+		int[] best=new int[cells.length];
+		int[] image=new int[cells.length];
+		for(int i=0;i<support.length;i++){
+			best[support[i]]=counts[support[i]];
+		}
+		for(int p=1;p<permutations.length;p++){
+			int[] permutation=permutations[p];
+			for(int i=0;i<support.length;i++){
+				image[permutation[support[i]]]=counts[support[i]];
+			}
+			for(int i=0;i<support.length;i++){
+				int c=support[i];
+				if(image[c]!=best[c]){
+					if(image[c]<best[c]){
+						System.arraycopy(image,0,best,0,best.length);
+					}
+					break;
+				}
+			}
+		}
+		for(int i=0;i<support.length;i++){
+			counts[support[i]]=best[support[i]];
+		}
+
+		/* Then take the lowest numbered events of each cell */
+		for(int c=0;c<cells.length;c++){
+			int[] members=cells[c];
+			for(int i=0;i<members.length;i++){
+				if(EventSet.contains(configuration,members[i])!=(i<counts[c])){
+					changed=true;
+					break;
+				}
+			}
+			if(changed){
+				break;
+			}
+		}
+		if(changed){
+			for(int c=0;c<cells.length;c++){
+				fill(configuration,cells[c],counts[c]);
+			}
+		}
+		return changed;
+	}
+
+	/* Sets the configuration to hold the given number of the lowest members
+	 * of a cell and none of the others */
+	static void fill(long[] configuration, int[] members, int count){
+		for(int i=0;i<members.length;i++){
+			if(i<count){
+				EventSet.add(configuration,members[i]);
+			}
+			else{
+				EventSet.remove(configuration,members[i]);
+			}
+		}
+	}
+
+	/* Returns the number of configurations with the same canonical
+	 * representative as the given one - the ways of choosing its events from
+	 * each class of twins, times the number of listed symmetries divided by
+	 * the number of them which leave its numbers of events in place */
+	public BigInteger orbitSize(long[] configuration){
+		BigInteger size=BigInteger.ONE;
+		int[] counts=counts(configuration);
+		for(int c=0;c<cells.length;c++){
+			int count=counts[c];
+			if(classOf[c]!=-1 && count>0 && count<cells[c].length){
+				size=size.multiply(choices[classOf[c]][count]);
+			}
+		}
+		if(permutations.length>1){
+			int fixed=0;
+			for(int p=0;p<permutations.length;p++){
+				int[] permutation=permutations[p];
+				boolean same=true;
+				for(int i=0;i<support.length && same;i++){
+					same=(counts[permutation[support[i]]]==counts[support[i]]);
+				}
+				if(same){
+					fixed++;
+				}
+			}
+			size=size.multiply(BigInteger.valueOf(permutations.length/fixed));
+		}
+		return size;
+	}
+
+	/* The search for the symmetries of the quotient of a structure. The
+	 * parts of the cells are held in one ordered array, each part a range of
+	 * it, and are only ever split; the order of the parts depends only on
+	 * the relations and the cells singled out, never on the cells' numbers,
+	 * so two searches which single out cells a symmetry maps onto each other
+	 * end with the cells in matching places */
+	static class AutomorphismSearch {
+
+		/* The causes, consequences and conflicts of each cell, each listed
+		 * once */
+		int[][][] adjacent;
+
+		/* The number of cells */
+		int size;
+
+		/* The partitions on the first way down and the cell singled out to
+		 * get each from the one before */
+		ArrayList<Partition> path=new ArrayList<Partition>();
+		IntList base=new IntList();
+
+		/* The cells in each place at the end of the first way down */
+		int[] leaf;
+
+		/* The symmetries found and the group they generate */
+		ArrayList<int[]> generators=new ArrayList<int[]>();
+		ArrayList<int[]> group=new ArrayList<int[]>();
+		HashSet<Permutation> members=new HashSet<Permutation>();
+
+		/* The number of refinements made */
+		int refinements=0;
+
+		/* Cleared if the search was cut short */
+		boolean complete=true;
+
+		/* Working space for refining and checking */
+		int[] count;
+		int[] stamp;
+		int stamps=0;
+		long[] keys;
+		int[] splitter;
+		boolean[] waiting;
+
+		/* Prepares to search the quotient of the symmetry's cells */
+		AutomorphismSearch(EventSymmetry symmetry, Relation precedes, Relation succeeds, Relation conflicts){
+			size=symmetry.cells.length;
+			count=new int[size];
+			stamp=new int[size];
+			keys=new long[size];
+			splitter=new int[size];
+			waiting=new boolean[size];
+			Relation[] relations={succeeds,precedes,conflicts};
+			adjacent=new int[relations.length][size][];
+			for(int r=0;r<relations.length;r++){
+				for(int c=0;c<size;c++){
+					int event=symmetry.cells[c][0];
+					IntList row=new IntList();
+					stamps++;
+					for(int e=relations[r].next(event,0);e!=-1;e=relations[r].next(event,e+1)){
+						int cell=symmetry.cellOf[e];
+						if(stamp[cell]!=stamps){
+							stamp[cell]=stamps;
+							row.add(cell);
+						}
+					}
+					adjacent[r][c]=row.toArray();
+				}
+			}
+
+			/* The first partition separates the cells by size and by
+			 * whether their twins are in conflict with each other */
+			Integer[] order=new Integer[size];
+			final int[] colours=new int[size];
+			for(int c=0;c<size;c++){
+				order[c]=c;
+				int owner=symmetry.classOf[c];
+				colours[c]=2*symmetry.cells[c].length+((owner!=-1 && symmetry.conflicting[owner])?1:0);
+			}
+			Arrays.sort(order,new Comparator<Integer>(){
+				@Override
+				public int compare(Integer a, Integer b){
+					return Integer.compare(colours[a],colours[b]);
+				}
+			});
+			Partition first=new Partition(size);
+			IntList queue=new IntList();
+			for(int i=0;i<size;i++){
+				first.elements[i]=order[i];
+				first.position[order[i]]=i;
+				boolean starts=(i==0 || colours[order[i]]!=colours[order[i-1]]);
+				first.start[order[i]]=starts?i:first.start[order[i-1]];
+				if(starts){
+					queue.add(i);
+				}
+			}
+			for(int k=0;k<queue.size();k++){
+				first.end[queue.get(k)]=(k+1<queue.size())?queue.get(k+1):size;
+			}
+			refine(first,queue);
+			path.add(first);
+			group.add(identity(size));
+			members.add(new Permutation(identity(size)));
+		}
+
+		/* Follows the first way down, then looks for the symmetries which
+		 * map each cell singled out onto the others of its part, from the
+		 * last one singled out to the first */
+		void run(){
+			Partition partition=path.get(0);
+			while(!partition.isDiscrete()){
+				int cell=partition.elements[partition.target()];
+				partition=partition.copy();
+				refine(partition,partition.single(cell));
+				path.add(partition);
+				base.add(cell);
+			}
+			leaf=partition.elements.clone();
+			int[] orbits=identity(size);
+			for(int d=base.size()-1;d>=0 && complete;d--){
+				Partition parent=path.get(d);
+				int cell=base.get(d);
+				int from=parent.start[cell];
+				for(int i=from;i<parent.end[from] && complete;i++){
+					int other=parent.elements[i];
+					if(find(orbits,other)==find(orbits,cell)){
+						continue;
+					}
+					int[] found=search(d,other);
+					if(found==null){
+						continue;
+					}
+					if(!extend(found)){
+						complete=false;
+						break;
+					}
+					for(int c=0;c<size;c++){
+						union(orbits,c,found[c]);
+					}
+				}
+			}
+		}
+
+		/* Returns a symmetry which leaves the cells singled out on the first
+		 * way down before the given depth in place and maps the next one
+		 * onto the given cell, or null if there is none. The ways down from
+		 * singling out the cell are searched depth first, with a stack of
+		 * frames, leaving any whose shape differs from the first way's */
+		int[] search(int depth, int cell){
+			Partition start=path.get(depth).copy();
+			refine(start,start.single(cell));
+			if(!start.sameShape(path.get(depth+1))){
+				return null;
+			}
+			ArrayDeque<Frame> stack=new ArrayDeque<Frame>();
+			stack.push(new Frame(start,depth+1));
+			while(!stack.isEmpty()){
+				if(refinements>MAX_REFINEMENTS){
+					complete=false;
+					return null;
+				}
+				Frame frame=stack.peek();
+				Partition partition=frame.partition;
+				if(partition.isDiscrete()){
+					stack.pop();
+					int[] mapping=new int[size];
+					for(int i=0;i<size;i++){
+						mapping[leaf[i]]=partition.elements[i];
+					}
+					if(isAutomorphism(mapping)){
+						return mapping;
+					}
+					continue;
+				}
+				int target=partition.target();
+				if(target+frame.next>=partition.end[target]){
+					stack.pop();
+					continue;
+				}
+				Partition child=partition.copy();
+				refine(child,child.single(partition.elements[target+frame.next++]));
+				if(child.sameShape(path.get(frame.depth+1))){
+					stack.push(new Frame(child,frame.depth+1));
+				}
+			}
+			return null;
+		}
+
+		/* Splits the parts of the partition until the cells of each part
+		 * have the same numbers of causes, consequences and conflicts in
+		 * every part, starting from the parts in the queue (by their first
+		 * place). Each part taken from the queue is used to split the
+		 * others by the number of each cell's neighbours in it; of a part
+		 * split which is not waiting in the queue, every piece but the
+		 * largest is added, as the numbers in that one follow from the
+		 * others' */
+		void refine(Partition partition, IntList queue){
+			refinements++;
+			ArrayDeque<Integer> pending=new ArrayDeque<Integer>();
+			for(int i=0;i<queue.size();i++){
+				waiting[queue.get(i)]=true;
+				pending.add(queue.get(i));
+			}
+			IntList touched=new IntList();
+			while(!pending.isEmpty()){
+				int from=pending.poll();
+				waiting[from]=false;
+				int length=partition.end[from]-from;
+				System.arraycopy(partition.elements,from,splitter,0,length);
+				for(int r=0;r<adjacent.length;r++){
+					int[][] rows=adjacent[r];
+					stamps++;
+					touched.clear();
+					for(int i=0;i<length;i++){
+						int[] row=rows[splitter[i]];
+						for(int j=0;j<row.length;j++){
+							int cell=row[j];
+							count[cell]++;
+							int part=partition.start[cell];
+							if(stamp[part]!=stamps){
+								stamp[part]=stamps;
+								touched.add(part);
+							}
+						}
+					}
+					int[] parts=touched.toArray();
+					Arrays.sort(parts);
+					for(int k=0;k<parts.length;k++){
+						split(partition,parts[k],pending);
+					}
+					for(int i=0;i<length;i++){
+						int[] row=rows[splitter[i]];
+						for(int j=0;j<row.length;j++){
+							count[row[j]]=0;
+						}
+					}
+				}
+			}
+		}
+
+		/* Splits the part starting at the given place by the counts of its
+		 * cells, in ascending order of count */
+		void split(Partition partition, int from, ArrayDeque<Integer> pending){
+			int to=partition.end[from];
+			int[] elements=partition.elements;
+			boolean uniform=true;
+			for(int i=from+1;i<to && uniform;i++){
+				uniform=(count[elements[i]]==count[elements[from]]);
+			}
+			if(uniform){
+				return;
+			}
+			for(int i=from;i<to;i++){
+				keys[i-from]=((long)count[elements[i]]<<32)|elements[i];
+			}
+			Arrays.sort(keys,0,to-from);
+			for(int i=from;i<to;i++){
+				elements[i]=(int)keys[i-from];
+				partition.position[elements[i]]=i;
+			}
+
+			/* Mark out the pieces, then queue them */
+			int piece=from;
+			for(int i=from;i<to;i++){
+				if(i>from && count[elements[i]]!=count[elements[i-1]]){
+					partition.end[piece]=i;
+					piece=i;
+				}
+				partition.start[elements[i]]=piece;
+			}
+			partition.end[piece]=to;
+			boolean queued=waiting[from];
+			int largest=from;
+			for(int p=from;p<to;p=partition.end[p]){
+				if(partition.end[p]-p>partition.end[largest]-largest){
+					largest=p;
+				}
+			}
+			for(int p=from;p<to;p=partition.end[p]){
+				if((queued && p!=from) || (!queued && p!=largest)){
+					waiting[p]=true;
+					pending.add(p);
+				}
+			}
+		}
+
+		/* Returns true if the mapping of the cells maps each relation onto
+		 * itself - the cells it maps onto each other always have the same
+		 * size, as they end in matching places of parts which were first
+		 * split by size */
+		boolean isAutomorphism(int[] mapping){
+			for(int r=0;r<adjacent.length;r++){
+				int[][] rows=adjacent[r];
+				for(int c=0;c<size;c++){
+					int[] row=rows[c];
+					int[] image=rows[mapping[c]];
+					if(row.length!=image.length){
+						return false;
+					}
+					stamps++;
+					for(int j=0;j<row.length;j++){
+						stamp[mapping[row[j]]]=stamps;
+					}
+					for(int j=0;j<image.length;j++){
+						if(stamp[image[j]]!=stamps){
+							return false;
+						}
+					}
+				}
+			}
+			return true;
+		}
+
+		/* Adds a symmetry to the generators and lists the group they
+		 * generate, unless it would then have more than MAX_GROUP members,
+		 * in which case the group is left as it was and false is returned */
+		boolean extend(int[] generator){
+			generators.add(generator);
+			ArrayList<int[]> listed=new ArrayList<int[]>(group);
+			HashSet<Permutation> seen=new HashSet<Permutation>(members);
+			for(int i=0;i<listed.size();i++){
+				for(int g=0;g<generators.size();g++){
+					int[] product=new int[size];
+					int[] element=listed.get(i);
+					int[] next=generators.get(g);
+					for(int c=0;c<size;c++){
+						product[c]=next[element[c]];
+					}
+					if(seen.add(new Permutation(product))){
+						if(listed.size()==MAX_GROUP){
+							generators.remove(generators.size()-1);
+							return false;
+						}
+						listed.add(product);
+					}
+				}
+			}
+			group=listed;
+			members=seen;
+			return true;
+		}
+
+		/* Returns the representative of the item's set, halving the paths
+		 * on the way */
+		static int find(int[] sets, int item){
+			while(sets[item]!=item){
+				sets[item]=sets[sets[item]];
+				item=sets[item];
+			}
+			return item;
+		}
+
+		/* Joins the sets of two items, under the lower representative so
+		 * that each set is named by its lowest item */
+		static void union(int[] sets, int a, int b){
+			a=find(sets,a);
+			b=find(sets,b);
+			if(a<b){
+				sets[b]=a;
+			}
+			else if(b<a){
+				sets[a]=b;
+			}
+		}
+	}
+
+	/* An ordered partition of the cells: the cells in order, the place of
+	 * each, and for each cell the first place of its part - the place after
+	 * the part's last cell is held at the part's first place */
+	static class Partition {
+		int[] elements;
+		int[] position;
+		int[] start;
+		int[] end;
+
+		Partition(int size){
+			elements=new int[size];
+			position=new int[size];
+			start=new int[size];
+			end=new int[size];
+		}
+
+		Partition copy(){
+			Partition copy=new Partition(0);
+			copy.elements=elements.clone();
+			copy.position=position.clone();
+			copy.start=start.clone();
+			copy.end=end.clone();
+			return copy;
+		}
+
+		/* Returns true if every cell is in a part of its own */
+		boolean isDiscrete(){
+			for(int i=0;i<elements.length;i=end[i]){
+				if(end[i]-i>1){
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/* Returns the first place of the first part with more than one
+		 * cell - the partition must not be discrete */
+		int target(){
+			int i=0;
+			while(end[i]-i==1){
+				i++;
+			}
+			return i;
+		}
+
+		/* Moves the cell into a part of its own at the front of its part,
+		 * and returns the queue of parts to refine by */
+		IntList single(int cell){
+			int from=start[cell];
+			int to=end[from];
+			int other=elements[from];
+			elements[position[cell]]=other;
+			position[other]=position[cell];
+			elements[from]=cell;
+			position[cell]=from;
+			for(int i=from+1;i<to;i++){
+				start[elements[i]]=from+1;
+			}
+			end[from+1]=to;
+			end[from]=from+1;
+			IntList queue=new IntList();
+			queue.add(from);
+			return queue;
+		}
+
+		/* Returns true if the partitions have parts of the same sizes in the
+		 * same places */
+		boolean sameShape(Partition other){
+			for(int i=0;i<elements.length;i++){
+				if(start[elements[i]]!=other.start[other.elements[i]]){
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/* A point in the search for a symmetry: a partition, how many cells
+	 * have been singled out to reach it, and how many of its first part
+	 * with more than one cell have been tried */
+	static class Frame {
+		Partition partition;
+		int depth;
+		int next=0;
+
+		Frame(Partition partition, int depth){
+			this.partition=partition;
+			this.depth=depth;
+		}
+	}
+
+	/* A symmetry as a key of a hash set */
+	static class Permutation {
+		int[] mapping;
+
+		Permutation(int[] mapping){
+			this.mapping=mapping;
+		}
+
+		@Override
+		public boolean equals(Object other){
+			return other instanceof Permutation && Arrays.equals(mapping,((Permutation)other).mapping);
+		}
+
+		@Override
+		public int hashCode(){
+			return Arrays.hashCode(mapping);
+		}
+	}
+}
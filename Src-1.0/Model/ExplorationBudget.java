@@ -0,0 +1,116 @@
+package Model;
+
+/* The limits placed on an exploration of the transition graph, which can
+ * otherwise grow exponentially with the number of concurrent events. Once the
+ * number of nodes, the time taken or the heap in use reaches its limit, or the
+ * monitor cancels the exploration, the exploration stops and the graph found
+ * so far is returned. Nodes with more events than the depth limit are never
+ * created, but the exploration carries on with the remaining nodes. In every
+ * case the graph is marked as truncated with the reason, and the nodes which
+ * were not fully expanded are marked as such (see StateGraph).
+ * A budget also records the progress of the exploration which it is passed
+ * to, so it should not be shared between explorations running at once */
+public class ExplorationBudget {
+
+	/* The number of nodes expanded between checks of the time, the heap and
+	 * the monitor */
+	static final int CHECK_INTERVAL=256;
+
+	/* The shortest interval between two progress reports */
+	static final long REPORT_INTERVAL=100;
+
+	/* The limits - the default for each is no limit at all */
+	public int maxStates=Integer.MAX_VALUE;
+	public int maxDepth=Integer.MAX_VALUE;
+	public long maxMillis=Long.MAX_VALUE;
+	public long maxMemory=Long.MAX_VALUE;
+
+	/* Receives the progress reports, or null if none are wanted */
+	public ExplorationMonitor monitor=null;
+
+	/* The time at which the exploration started and the last progress
+	 * report was made */
+	long startTime;
+	long lastReport;
+
+	/* The reason that the graph is incomplete, or null if it is complete */
+	String truncation;
+
+	/* Set once the exploration must stop */
+	volatile boolean stopped;
+
+	/* Prepares the budget for the start of an exploration */
+	void start(){
+		startTime=lastReport=System.currentTimeMillis();
+		truncation=null;
+		stopped=false;
+	}
+
+	/* Returns true if the exploration must stop, checking the limits on
+	 * time and memory and reporting progress - this is called every
+	 * CHECK_INTERVAL expansions, and may be called by several threads */
+	synchronized boolean exhausted(int states, int frontier){
+		if(stopped){
+			return true;
+		}
+		long now=System.currentTimeMillis();
+		if(monitor!=null){
+			if(monitor.isCancelled()){
+				stop("Exploration cancelled");
+				return true;
+			}
+			if(now-lastReport>=REPORT_INTERVAL){
+				monitor.progress(states,frontier,now-startTime);
+				lastReport=now;
+			}
+		}
+		if(now-startTime>=maxMillis){
+			stop("Time limit of "+(maxMillis/1000.0)+" seconds reached");
+		}
+		else if(maxMemory!=Long.MAX_VALUE){
+			Runtime runtime=Runtime.getRuntime();
+			if(runtime.totalMemory()-runtime.freeMemory()>=maxMemory){
+				stop("Memory limit of "+(maxMemory>>20)+" MB reached");
+			}
+		}
+		return stopped;
+	}
+
+	/* Returns true if no more nodes may be added to a graph of the given size,
+	 * stopping the exploration if so */
+	boolean full(int states){
+		if(states>=maxStates){
+			stop("State limit of "+maxStates+" reached");
+		}
+		return stopped;
+	}
+
+	/* Returns true if a node with the given number of events may not be
+	 * expanded - the exploration carries on, but the graph is incomplete */
+	boolean tooDeep(int level){
+		if(level<maxDepth){
+			return false;
+		}
+		truncate("Depth limit of "+maxDepth+" events reached");
+		return true;
+	}
+
+	/* Stops the exploration for the given reason */
+	synchronized void stop(String reason){
+		truncate(reason);
+		stopped=true;
+	}
+
+	/* Records that the graph is incomplete for the given reason, unless it
+	 * is already known to be incomplete */
+	synchronized void truncate(String reason){
+		if(truncation==null){
+			truncation=reason;
+		}
+	}
+
+	/* Returns the reason that the graph is incomplete, or null */
+	public String truncation(){
+		return truncation;
+	}
+}
@@ -0,0 +1,15 @@
+package Model;
+
+/* Receives progress reports while the transition graph is being explored,
+ * and allows a long-running exploration to be stopped part way through */
+public interface ExplorationMonitor {
+
+	/* Called periodically during the exploration with the number of nodes
+	 * found so far, the number of those still waiting to be expanded and the
+	 * time spent so far */
+	void progress(int states, int frontier, long elapsedMillis);
+
+	/* Returns true if the exploration should be stopped - the graph found so
+	 * far is then returned, marked as truncated */
+	boolean isCancelled();
+}
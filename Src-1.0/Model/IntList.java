@@ -0,0 +1,59 @@
+package Model;
+
+import java.util.Arrays;
+
+/* A growable list of primitive integers - this is used in place of a
+ * LinkedList of Integer objects wherever lists of event or node IDs are
+ * stored, as it avoids boxing every element and allows constant time
+ * access by position */
+public class IntList {
+
+	/* The elements of the list, followed by unused capacity */
+	int[] elements;
+
+	/* The number of elements in the list */
+	int size=0;
+
+	/* Creates an empty list */
+	public IntList(){
+		elements=new int[4];
+	}
+
+	/* Creates an empty list with room for the given number of elements */
+	public IntList(int capacity){
+		elements=new int[Math.max(capacity,1)];
+	}
+
+	/* Appends an element to the end of the list */
+	public void add(int element){
+		if(size==elements.length){
+			elements=Arrays.copyOf(elements,size*2);
+		}
+		elements[size++]=element;
+	}
+
+	/* Returns the element at the given position */
+	public int get(int position){
+		return elements[position];
+	}
+
+	/* Replaces the element at the given position */
+	public void set(int position, int element){
+		elements[position]=element;
+	}
+
+	/* Returns the number of elements in the list */
+	public int size(){
+		return size;
+	}
+
+	/* Removes all elements from the list */
+	public void clear(){
+		size=0;
+	}
+
+	/* Returns a copy of the elements as an array of the exact length */
+	public int[] toArray(){
+		return Arrays.copyOf(elements,size);
+	}
+}
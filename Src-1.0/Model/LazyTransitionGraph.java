@@ -0,0 +1,221 @@
+package Model;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.swing.SwingUtilities;
+
+/* Shows the transition graph around the current run of the event structure
+ * rather than building it in full, so that something can be drawn at once
+ * however large the full graph is. The graph shown is a small finished graph
+ * (see CompactTransitionGraph) holding every state on the live path from the
+ * empty configuration to the current state, every state one transition away
+ * from the path, and the states up to LOOKAHEAD levels below the current
+ * state. It is rebuilt each time an event completes or the run is reset, and
+ * states whose transitions are not all shown are marked as unexpanded.
+ * The transitions out of a state are worked out from the event structure only
+ * when the state is shown - the events enabled in each state are kept in a
+ * bounded cache, least recently used first out, so walking back and forth over
+ * the same states does not recompute them, while the memory used stays fixed
+ * however long the structure runs */
+public class LazyTransitionGraph {
+
+	/* The number of states whose enabled events are cached */
+	static final int CACHE_SIZE=4096;
+
+	/* The number of levels shown below the current state */
+	static final int LOOKAHEAD=3;
+
+	/* The most states shown, other than those on the live path */
+	static final int MAX_SHOWN=200;
+
+	/* The events completed on the live path, in order */
+	IntList path=new IntList();
+
+	/* The events enabled in recently shown states, keyed by configuration */
+	LinkedHashMap<Configuration,long[]> cache=new LinkedHashMap<Configuration,long[]>(CACHE_SIZE,0.75f,true){
+		private static final long serialVersionUID=1L;
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Configuration,long[]> eldest){
+			return size()>CACHE_SIZE;
+		}
+	};
+
+	/* A configuration used as a key of the cache */
+	static class Configuration {
+		final long[] events;
+		final int hash;
+
+		Configuration(long[] events){
+			this.events=events;
+			this.hash=Arrays.hashCode(events);
+		}
+
+		@Override
+		public int hashCode(){
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object other){
+			return other instanceof Configuration && Arrays.equals(events,((Configuration)other).events);
+		}
+	}
+
+	/* Creates the lazy graph for the loaded event structure, positioned at
+	 * the empty configuration */
+	public LazyTransitionGraph(){
+		TransitionGraph.generateKeys();
+	}
+
+	/* Follows the completed event along the live path and shows the new
+	 * neighbourhood - an event which cannot complete from the current state
+	 * is ignored */
+	synchronized void advance(int event){
+		long[] current=EventSet.create(EventStructure.events.length);
+		long[] enabled=enabled(current,null,-1);
+		for(int i=0;i<path.size();i++){
+			EventSet.add(current,path.get(i));
+			enabled=enabled(current,enabled,path.get(i));
+		}
+		if(EventSet.contains(enabled,event)){
+			path.add(event);
+			publish();
+		}
+	}
+
+	/* Returns to the empty configuration and shows its neighbourhood */
+	synchronized void reset(){
+		path.clear();
+		publish();
+	}
+
+	/* Makes the graph around the live path the current transition graph,
+	 * with the path as its execution trace, and lays it out. This is called
+	 * on the thread of the event which completed, so the graph is built and
+	 * laid out here but only handed to the render on the event dispatch
+	 * thread, where the graph, trace and positions are replaced together and
+	 * a drawing in progress never sees some of them changed */
+	void publish(){
+		final IntList trace=new IntList();
+		final CompactTransitionGraph view=view(trace);
+		final int[] positions=TransitionGraphRender.positions(view);
+		final int widestLevel=TransitionGraphRender.widestLevel(view);
+		Runnable show=new Runnable(){
+			@Override
+			public void run(){
+				TransitionGraph.graph=view;
+				TransitionGraph.executionTrace=trace;
+				TransitionGraphRender.transitionPositions=positions;
+				TransitionGraphRender.widestLevel=widestLevel;
+			}
+		};
+		if(SwingUtilities.isEventDispatchThread()){
+			show.run();
+		}
+		else{
+			SwingUtilities.invokeLater(show);
+		}
+	}
+
+	/* Builds the graph around the live path, adding the IDs of the states on
+	 * the path to the trace */
+	CompactTransitionGraph view(IntList trace){
+		int events=EventStructure.events.length;
+		CompactTransitionGraph view=new CompactTransitionGraph(new ConfigurationIndex(events));
+		long[] configuration=EventSet.create(events);
+		long[] enabled=enabled(configuration,null,-1);
+		int node=view.addNode(configuration,0,-1,-1);
+		IntList expanded=new IntList();
+		trace.add(node);
+
+		/* Expand each state on the path, always including the next one */
+		for(int i=0;i<path.size();i++){
+			int event=path.get(i);
+			expand(view,node,configuration,enabled,event);
+			expanded.add(node);
+			EventSet.add(configuration,event);
+			enabled=enabled(configuration,enabled,event);
+			node=view.find(configuration,view.hash(node)^TransitionGraph.eventKeys[event]);
+			trace.add(node);
+		}
+
+		/* Expand breadth first below the current state - the IDs of the
+		 * states found serve as the queue */
+		IntList queue=new IntList();
+		queue.add(node);
+		int limit=EventSet.size(configuration)+LOOKAHEAD;
+		for(int i=0;i<queue.size();i++){
+			int source=queue.get(i);
+			long[] sourceConfiguration=view.configuration(source);
+			if(EventSet.size(sourceConfiguration)>=limit || view.size()>=MAX_SHOWN+path.size()){
+				break;
+			}
+			int first=view.size();
+			expand(view,source,sourceConfiguration,enabled(sourceConfiguration,null,-1),-1);
+			expanded.add(source);
+			for(int target=first;target<view.size();target++){
+				queue.add(target);
+			}
+		}
+
+		/* Every other state which has transitions out of it is unexpanded */
+		long[] done=EventSet.create(view.size());
+		for(int i=0;i<expanded.size();i++){
+			EventSet.add(done,expanded.get(i));
+		}
+		for(int i=0;i<view.size();i++){
+			if(!EventSet.contains(done,i) && !EventSet.isEmpty(enabled(view.configuration(i),null,-1))){
+				view.markUnexpanded(i);
+			}
+		}
+		view.finish();
+		return view;
+	}
+
+	/* Adds the transitions out of a state, adding the states they lead to -
+	 * once the most states have been shown only those already present (and
+	 * the state reached by the required event, if any) are added, and the
+	 * state is left unexpanded */
+	void expand(CompactTransitionGraph view, int source, long[] configuration, long[] enabled, int required){
+		long hash=view.hash(source);
+		for(int e=EventSet.next(enabled,0);e!=-1;e=EventSet.next(enabled,e+1)){
+			long[] target=configuration.clone();
+			EventSet.add(target,e);
+			long targetHash=hash^TransitionGraph.eventKeys[e];
+			int id=view.find(target,targetHash);
+			if(id==-1){
+				if(e!=required && view.size()>=MAX_SHOWN+path.size()){
+					view.markUnexpanded(source);
+					continue;
+				}
+				id=view.addNode(target,targetHash,source,e);
+			}
+			view.addTransition(source,e,id);
+		}
+	}
+
+	/* Returns the events enabled in the configuration, from the cache if
+	 * possible. If they are not cached and the enabled events of the state it
+	 * was reached from are given, only the successors of the event completed
+	 * are checked (see TransitionGraph.enabledAfter), otherwise every event is */
+	long[] enabled(long[] configuration, long[] parentEnabled, int event){
+		Configuration key=new Configuration(configuration.clone());
+		long[] enabled=cache.get(key);
+		if(enabled==null){
+			if(parentEnabled!=null){
+				enabled=TransitionGraph.enabledAfter(parentEnabled,configuration,event);
+			}
+			else{
+				enabled=EventSet.create(EventStructure.events.length);
+				for(int i=0;i<EventStructure.events.length;i++){
+					if(!EventSet.contains(configuration,i) && TransitionGraph.checkCanComplete(configuration,i)){
+						EventSet.add(enabled,i);
+					}
+				}
+			}
+			cache.put(key,enabled);
+		}
+		return enabled;
+	}
+}
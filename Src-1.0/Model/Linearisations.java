@@ -0,0 +1,157 @@
+package Model;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+/* Counts the runs of the event structure - the orders in which the events of
+ * a configuration can be completed (its linearisations) - over a built
+ * transition graph, and samples complete runs uniformly at random. A run is a
+ * path of the graph from the empty state, so the number of runs reaching each
+ * state is the sum of those reaching the states before it, and the number of
+ * ways to complete a run from each state (ending in a maximal configuration)
+ * is the sum of those of the states after it. Both are found in one pass over
+ * the levels each way, in time linear in the size of the graph, where
+ * enumerating the paths would take time exponential in the number of
+ * concurrent events. The counts grow with the factorial of the number of
+ * events, so they are held as BigIntegers.
+ * The runs ending in a maximal configuration divided by all complete runs is
+ * the chance of that outcome when every complete run is equally likely. To
+ * sample such a run, one number is drawn uniformly below the number of
+ * complete runs and then followed down the graph: the transitions out of each
+ * state divide the range between them in proportion to the runs completed
+ * after each, so a sample takes one draw and then one step per event of the
+ * run, each step looking at the transitions out of one state. No running
+ * totals are kept per transition, as a count for every transition would take
+ * several times the memory of the graph itself.
+ * If the graph is truncated, only the runs which stay within it and end in a
+ * state known to be maximal are counted or sampled */
+public class Linearisations {
+
+	/* The graph counted */
+	StateGraph graph;
+
+	/* The number of runs from the empty state to each state */
+	BigInteger[] reaching;
+
+	/* The number of ways to complete a run from each state */
+	BigInteger[] completing;
+
+	/* The maximal states of the graph, in ID order */
+	IntList maximal=new IntList();
+
+	/* Counts the runs of the graph */
+	public Linearisations(StateGraph graph){
+		this.graph=graph;
+		int size=graph.size();
+		reaching=new BigInteger[size];
+		completing=new BigInteger[size];
+		for(int state=0;state<size;state++){
+			reaching[state]=BigInteger.ZERO;
+		}
+		if(size==0){
+			return;
+		}
+
+		/* Every transition goes up one level, so the levels taken in order
+		 * visit each state after every state before it */
+		reaching[0]=BigInteger.ONE;
+		for(int level=0;level<graph.levels();level++){
+			for(int i=0;i<graph.levelSize(level);i++){
+				int state=graph.stateAt(level,i);
+				for(int j=0;j<graph.degree(state);j++){
+					int target=graph.target(state,j);
+					reaching[target]=reaching[target].add(reaching[state]);
+				}
+			}
+		}
+
+		/* And in reverse order each state is visited after every state after
+		 * it - a state with no transitions ends a complete run only if it is
+		 * known to be maximal */
+		for(int level=graph.levels()-1;level>=0;level--){
+			for(int i=0;i<graph.levelSize(level);i++){
+				int state=graph.stateAt(level,i);
+				if(graph.degree(state)==0){
+					completing[state]=graph.isExpanded(state)?BigInteger.ONE:BigInteger.ZERO;
+					continue;
+				}
+				BigInteger total=BigInteger.ZERO;
+				for(int j=0;j<graph.degree(state);j++){
+					total=total.add(completing[graph.target(state,j)]);
+				}
+				completing[state]=total;
+			}
+		}
+		for(int state=0;state<size;state++){
+			if(graph.degree(state)==0 && graph.isExpanded(state)){
+				maximal.add(state);
+			}
+		}
+	}
+
+	/* Returns the graph counted */
+	public StateGraph graph(){
+		return graph;
+	}
+
+	/* Returns the number of runs from the empty state to the state, i.e. the
+	 * number of linearisations of its configuration */
+	public BigInteger reaching(int state){
+		return reaching[state];
+	}
+
+	/* Returns the number of ways to complete a run from the state */
+	public BigInteger completing(int state){
+		return completing[state];
+	}
+
+	/* Returns the number of complete runs, i.e. from the empty state to a
+	 * maximal state */
+	public BigInteger runs(){
+		return completing.length==0?BigInteger.ZERO:completing[0];
+	}
+
+	/* Returns the number of maximal states */
+	public int maximalCount(){
+		return maximal.size();
+	}
+
+	/* Returns the ID of the maximal state at the given position, in ID order */
+	public int maximal(int index){
+		return maximal.get(index);
+	}
+
+	/* Samples a complete run uniformly at random and returns its events in
+	 * the order completed, or null if there are no complete runs */
+	public int[] sample(Random random){
+		BigInteger runs=runs();
+		if(runs.signum()==0){
+			return null;
+		}
+
+		/* Draw a number uniformly below the number of runs, by drawing
+		 * enough bits and trying again if it is too large */
+		BigInteger rank;
+		do{
+			rank=new BigInteger(runs.bitLength(),random);
+		}while(rank.compareTo(runs)>=0);
+
+		/* Follow the transition whose share of the range holds the number,
+		 * taking away the shares of the transitions before it */
+		int state=0;
+		int[] run=new int[graph.levels()-1];
+		int length=0;
+		while(graph.degree(state)>0){
+			int index=0;
+			BigInteger share=completing[graph.target(state,0)];
+			while(rank.compareTo(share)>=0){
+				rank=rank.subtract(share);
+				share=completing[graph.target(state,++index)];
+			}
+			run[length++]=graph.label(state,index);
+			state=graph.target(state,index);
+		}
+		return Arrays.copyOf(run,length);
+	}
+}
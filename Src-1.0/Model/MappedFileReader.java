@@ -0,0 +1,81 @@
+package Model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/* A Reader over a file which is memory-mapped rather than read through
+ * buffered system calls, so the operating system pages the file in as it is
+ * read and no copy of the whole file is ever held on the Java heap. The file
+ * is mapped one window at a time so that files larger than a single mapping
+ * can be read. Each byte is read as one character (ISO-8859-1) - definitions
+ * are plain ASCII, and any other byte is reported by the parser as an
+ * invalid character */
+public class MappedFileReader extends Reader {
+
+	/* The size of each mapped window of the file */
+	static final long WINDOW_SIZE=64L*1024*1024;
+
+	/* The open file and its length in bytes */
+	RandomAccessFile file;
+	FileChannel channel;
+	long length;
+
+	/* The currently mapped window and the offset of its first byte */
+	MappedByteBuffer window;
+	long windowStart=0;
+
+	/* Opens and maps the start of the given file */
+	public MappedFileReader(File path) throws IOException{
+		file=new RandomAccessFile(path,"r");
+		channel=file.getChannel();
+		length=channel.size();
+		map(0);
+	}
+
+	/* Maps the window of the file beginning at the given offset */
+	void map(long start) throws IOException{
+		windowStart=start;
+		window=channel.map(FileChannel.MapMode.READ_ONLY,start,Math.min(WINDOW_SIZE,length-start));
+	}
+
+	@Override
+	public int read(char[] buffer, int offset, int count) throws IOException{
+
+		/* Move on to the next window once the current one is exhausted */
+		if(!window.hasRemaining()){
+			long next=windowStart+window.limit();
+			if(next>=length){
+				return -1;
+			}
+			map(next);
+		}
+
+		/* Copy as many bytes as are available in this window */
+		int available=Math.min(count,window.remaining());
+		for(int i=0;i<available;i++){
+			buffer[offset+i]=(char)(window.get()&0xFF);
+		}
+		return available;
+	}
+
+	/* Returns the number of bytes (and so characters) read so far */
+	public long position(){
+		return windowStart+window.position();
+	}
+
+	/* Returns the length of the file in bytes */
+	public long length(){
+		return length;
+	}
+
+	@Override
+	public void close() throws IOException{
+		window=null;
+		channel.close();
+		file.close();
+	}
+}
@@ -0,0 +1,239 @@
+package Model;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/* Enumerates the maximal configurations of the loaded event structure - the
+ * possible complete outcomes of a run - without building the transition graph.
+ * A configuration is maximal exactly when every event outside it is in
+ * conflict (directly or by inheritance) with one of its events, so the maximal
+ * configurations are the maximal sets of possible events no two of which are in
+ * conflict. Such a set is always causally closed: a missing cause of one of its
+ * events would have to conflict with one of the others, and the event itself
+ * would then inherit that conflict. The maximal configurations are therefore
+ * the maximal cliques of the graph joining every two events which are not in
+ * conflict, and are found with the Bron-Kerbosch search, choosing the pivot
+ * with the most neighbours among the candidates (Tomita et al.) so that each
+ * configuration is reached once and few dead ends are explored. Events which
+ * conflict with themselves (through two causes in conflict) can never occur
+ * and are left out. The sets of the search are bitsets (see EventSet), so each
+ * step is a few operations per word.
+ * Each configuration is passed on as soon as it is found and nothing else is
+ * kept, so the memory used is only that of the branches of the search still
+ * to be taken. The search can run on all processors: the branches are shared
+ * out as fork/join tasks whenever the pool is running short of work, in which
+ * case the configurations are found in no particular order. The tasks are
+ * counted completers which never wait for one another, so however deep the
+ * search goes the thread stacks stay shallow */
+public class MaximalConfigurations {
+
+	/* The most tasks waiting in a thread's queue before it stops forking */
+	static final int SURPLUS=2;
+
+	/* The events which are not in conflict with each event, other than
+	 * itself - an impossible event has no neighbours */
+	long[][] compatible;
+
+	/* The events which can occur at all */
+	long[] possible;
+
+	/* Receives the configurations found - it is only called by one thread
+	 * at a time */
+	Consumer<long[]> consumer;
+
+	/* The limits on the search */
+	ExplorationBudget budget;
+
+	/* Set if branches may be handed to other tasks */
+	boolean parallel;
+
+	/* The number of configurations found */
+	long found=0;
+
+	/* Prepares to search the loaded structure */
+	MaximalConfigurations(Consumer<long[]> consumer, ExplorationBudget budget){
+		int size=EventStructure.events.length;
+		this.consumer=consumer;
+		this.budget=budget;
+		possible=EventSet.create(size);
+		for(int e=0;e<size;e++){
+			if(!EventStructure.closure.inConflict(e,e)){
+				EventSet.add(possible,e);
+			}
+		}
+		compatible=new long[size][];
+		for(int e=0;e<size;e++){
+			compatible[e]=EventSet.create(size);
+			if(EventSet.contains(possible,e)){
+				long[] conflicts=EventStructure.closure.conflicts(e);
+				for(int k=0;k<compatible[e].length;k++){
+					compatible[e][k]=possible[k]&~conflicts[k];
+				}
+				EventSet.remove(compatible[e],e);
+			}
+		}
+	}
+
+	/* Passes every maximal configuration of the loaded structure (as a new
+	 * set, see EventSet) to the consumer and returns how many there were. If
+	 * parallel, the search runs on all processors, but the consumer is still
+	 * only called by one thread at a time. The budget's state limit applies
+	 * to the number of configurations found - if the budget runs out, the
+	 * search stops and the budget holds the reason */
+	public static long enumerate(Consumer<long[]> consumer, boolean parallel, ExplorationBudget budget){
+		budget.start();
+		MaximalConfigurations search=new MaximalConfigurations(consumer,budget);
+		search.parallel=parallel;
+		int size=EventStructure.events.length;
+
+		/* With no possible events the search has nothing to branch on, and
+		 * the empty configuration is the only maximal one */
+		if(EventSet.isEmpty(search.possible)){
+			search.report(EventSet.create(size));
+			return search.found;
+		}
+		SearchTask root=new SearchTask(null,search,search.frame(EventSet.create(size),search.possible.clone(),EventSet.create(size)));
+		if(parallel){
+			ForkJoinPool pool=new ForkJoinPool();
+			try{
+				pool.invoke(root);
+			}finally{
+				pool.shutdown();
+			}
+		}
+		else{
+			root.compute();
+		}
+		return search.found;
+	}
+
+	/* A point in the search: the configuration chosen so far, the events
+	 * which could still be added to it and those which have already been
+	 * tried, with the candidates still to branch on */
+	static class Frame {
+		long[] chosen;
+		long[] candidates;
+		long[] excluded;
+		long[] branches;
+		int next=0;
+	}
+
+	/* Returns the frame for the given sets, branching on the candidates which
+	 * are not neighbours of the pivot - every maximal configuration below
+	 * holds either the pivot or one of its non-neighbours */
+	Frame frame(long[] chosen, long[] candidates, long[] excluded){
+		Frame frame=new Frame();
+		frame.chosen=chosen;
+		frame.candidates=candidates;
+		frame.excluded=excluded;
+		int pivot=-1;
+		int most=-1;
+		for(int pass=0;pass<2;pass++){
+			long[] from=(pass==0)?candidates:excluded;
+			for(int u=EventSet.next(from,0);u!=-1;u=EventSet.next(from,u+1)){
+				int count=0;
+				for(int k=0;k<candidates.length;k++){
+					count+=Long.bitCount(candidates[k]&compatible[u][k]);
+				}
+				if(count>most){
+					most=count;
+					pivot=u;
+				}
+			}
+		}
+		frame.branches=candidates.clone();
+		if(pivot!=-1){
+			for(int k=0;k<candidates.length;k++){
+				frame.branches[k]&=~compatible[pivot][k];
+			}
+		}
+		return frame;
+	}
+
+	/* Passes a configuration found to the consumer, stopping the search if
+	 * the budget's state limit has been reached */
+	synchronized void report(long[] configuration){
+		if(budget.stopped || budget.full((int)Math.min(found,Integer.MAX_VALUE))){
+			return;
+		}
+		found++;
+		consumer.accept(configuration);
+	}
+
+	/* Searches below one frame, using a stack of frames rather than
+	 * recursion. When running in a pool which is short of work, a new
+	 * frame is handed to another task rather than pushed, provided this
+	 * task still has another branch of the current frame to take - a frame's
+	 * last branch is always pushed, so a long run of single branches (as in a
+	 * chain of causes) stays within one task. A task which hands out frames
+	 * does not wait for them: it only completes, along with its parent, once
+	 * they have all completed */
+	static class SearchTask extends CountedCompleter<Void> {
+
+		private static final long serialVersionUID = 1L;
+
+		MaximalConfigurations search;
+		Frame start;
+
+		SearchTask(SearchTask parent, MaximalConfigurations search, Frame start){
+			super(parent);
+			this.search=search;
+			this.start=start;
+		}
+
+		@Override
+		public void compute(){
+			ExplorationBudget budget=search.budget;
+			long[][] compatible=search.compatible;
+			ArrayDeque<Frame> stack=new ArrayDeque<Frame>();
+			stack.push(start);
+			int steps=0;
+			while(!stack.isEmpty() && !budget.stopped){
+				if(++steps%ExplorationBudget.CHECK_INTERVAL==0 &&
+						budget.exhausted((int)Math.min(search.found,Integer.MAX_VALUE),stack.size())){
+					break;
+				}
+				Frame frame=stack.peek();
+				int v=EventSet.next(frame.branches,frame.next);
+				if(v==-1){
+					stack.pop();
+					continue;
+				}
+				frame.next=v+1;
+
+				/* Add the event, keeping only the candidates and tried events
+				 * which are compatible with it, then move it from the
+				 * candidates to the tried events of this frame */
+				long[] chosen=frame.chosen.clone();
+				EventSet.add(chosen,v);
+				long[] candidates=frame.candidates.clone();
+				long[] excluded=frame.excluded.clone();
+				for(int k=0;k<candidates.length;k++){
+					candidates[k]&=compatible[v][k];
+					excluded[k]&=compatible[v][k];
+				}
+				EventSet.remove(frame.candidates,v);
+				EventSet.add(frame.excluded,v);
+				if(EventSet.isEmpty(candidates)){
+					if(EventSet.isEmpty(excluded)){
+						search.report(chosen);
+					}
+					continue;
+				}
+				Frame child=search.frame(chosen,candidates,excluded);
+				if(search.parallel && EventSet.next(frame.branches,frame.next)!=-1 &&
+						ForkJoinTask.getSurplusQueuedTaskCount()<=SURPLUS){
+					addToPendingCount(1);
+					new SearchTask(this,search,child).fork();
+				}
+				else{
+					stack.push(child);
+				}
+			}
+			tryComplete();
+		}
+	}
+}
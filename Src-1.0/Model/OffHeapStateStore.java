@@ -0,0 +1,222 @@
+package Model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+
+/* The state store (see StateStore) which keeps the configurations of the
+ * transition graph's nodes, and the hash table used to find them, outside the
+ * Java heap in direct buffers. The garbage collector never has to scan or move
+ * this memory, so its pauses stay short however many nodes are found, and the
+ * store is limited by the memory of the machine rather than by the size of the
+ * heap (the JVM limits direct memory to -XX:MaxDirectMemorySize, which defaults
+ * to the maximum heap size).
+ * Each node is a fixed-size record of its hash, the node and event it was
+ * discovered from and the words of its configuration, and the records are held
+ * in segments of about SEGMENT_BYTES, so that any number of them can be
+ * addressed even though a single buffer is limited to 2GB. The hash table is
+ * open-addressing with linear probing, and each of its slots is a single long
+ * holding the node's ID together with the top half of its hash. The top half
+ * also chooses the home slot, so the table can be doubled without reading any
+ * records, and a lookup only reads a record when the stored half of the hash
+ * matches - almost always the node sought */
+public class OffHeapStateStore implements StateStore {
+
+	/* The approximate size of each segment of records, and the number of
+	 * slots in each segment of the table */
+	static final int SEGMENT_BYTES=64*1024*1024;
+	static final int SLOT_SHIFT=23;
+	static final int SLOTS_PER_SEGMENT=1<<SLOT_SHIFT;
+
+	/* The number of words in each configuration, the size of each record in
+	 * bytes and the number of records in each segment */
+	int words;
+	int recordBytes;
+	int perSegment;
+
+	/* The segments of records, in ID order */
+	ArrayList<ByteBuffer> segments=new ArrayList<ByteBuffer>();
+
+	/* The segments of the table - an empty slot holds 0, otherwise the top
+	 * half of the hash and the ID plus one */
+	ByteBuffer[] table;
+
+	/* The number of slots in the table (a power of two) */
+	long capacity;
+
+	/* The number of configurations held */
+	int size=0;
+
+	/* Creates an empty store for configurations of the given number of events */
+	public OffHeapStateStore(int events){
+		words=EventSet.words(events);
+		recordBytes=8*(words+2);
+		perSegment=Math.max(1,SEGMENT_BYTES/recordBytes);
+		allocateTable(1024);
+	}
+
+	@Override
+	public int get(long[] configuration, long hash){
+		int tag=(int)(hash>>>32);
+		long mask=capacity-1;
+
+		/* Probe from the home slot until the configuration or an empty slot
+		 * is found */
+		for(long slot=home(tag)&mask;;slot=(slot+1)&mask){
+			long entry=slot(slot);
+			if(entry==0){
+				return -1;
+			}
+			int id=(int)entry-1;
+			if((int)(entry>>>32)==tag && matches(id,configuration,hash)){
+				return id;
+			}
+		}
+	}
+
+	@Override
+	public int add(long[] configuration, long hash, int parent, int event){
+
+		/* Start a new segment when the last one is full */
+		if(size==segments.size()*perSegment){
+			segments.add(allocateSegment(perSegment*recordBytes));
+		}
+		ByteBuffer segment=segments.get(size/perSegment);
+		int offset=(size%perSegment)*recordBytes;
+		segment.putLong(offset,hash);
+		segment.putInt(offset+8,parent);
+		segment.putInt(offset+12,event);
+		for(int i=0;i<words;i++){
+			segment.putLong(offset+8*(i+2),configuration[i]);
+		}
+
+		/* Grow the table before it becomes too full for probing to stay short */
+		if((size+1)*2L>capacity){
+			resize();
+		}
+		insert((long)(int)(hash>>>32)<<32|(size+1L));
+		return size++;
+	}
+
+	@Override
+	public int size(){
+		return size;
+	}
+
+	@Override
+	public long hash(int id){
+		return segments.get(id/perSegment).getLong((id%perSegment)*recordBytes);
+	}
+
+	@Override
+	public boolean contains(int id, int event){
+		long word=segments.get(id/perSegment).getLong((id%perSegment)*recordBytes+8*((event>>>6)+2));
+		return (word&(1L<<event))!=0;
+	}
+
+	@Override
+	public int count(int id){
+		ByteBuffer segment=segments.get(id/perSegment);
+		int offset=(id%perSegment)*recordBytes;
+		int count=0;
+		for(int i=0;i<words;i++){
+			count+=Long.bitCount(segment.getLong(offset+8*(i+2)));
+		}
+		return count;
+	}
+
+	@Override
+	public long[] configuration(int id){
+		ByteBuffer segment=segments.get(id/perSegment);
+		int offset=(id%perSegment)*recordBytes;
+		long[] configuration=new long[words];
+		for(int i=0;i<words;i++){
+			configuration[i]=segment.getLong(offset+8*(i+2));
+		}
+		return configuration;
+	}
+
+	@Override
+	public int parent(int id){
+		return segments.get(id/perSegment).getInt((id%perSegment)*recordBytes+8);
+	}
+
+	@Override
+	public int event(int id){
+		return segments.get(id/perSegment).getInt((id%perSegment)*recordBytes+12);
+	}
+
+	/* Releases the table - its memory is returned once the buffers have
+	 * been garbage collected */
+	@Override
+	public void trim(){
+		table=null;
+		capacity=0;
+	}
+
+	/* Returns true if the record with the given ID holds the given
+	 * configuration and hash */
+	boolean matches(int id, long[] configuration, long hash){
+		ByteBuffer segment=segments.get(id/perSegment);
+		int offset=(id%perSegment)*recordBytes;
+		if(segment.getLong(offset)!=hash){
+			return false;
+		}
+		for(int i=0;i<words;i++){
+			if(segment.getLong(offset+8*(i+2))!=configuration[i]){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/* Allocates a segment of records of the given size - the segments are
+	 * direct buffers in the machine's byte order */
+	ByteBuffer allocateSegment(int bytes){
+		return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+	}
+
+	/* Returns the entry held in the given slot of the table */
+	long slot(long slot){
+		return table[(int)(slot>>>SLOT_SHIFT)].getLong((int)(slot&(SLOTS_PER_SEGMENT-1))*8);
+	}
+
+	/* Places an entry in the first free slot of its probe sequence */
+	void insert(long entry){
+		long mask=capacity-1;
+		long slot=home((int)(entry>>>32))&mask;
+		while(slot(slot)!=0){
+			slot=(slot+1)&mask;
+		}
+		table[(int)(slot>>>SLOT_SHIFT)].putLong((int)(slot&(SLOTS_PER_SEGMENT-1))*8,entry);
+	}
+
+	/* Doubles the capacity of the table and re-inserts all entries */
+	void resize(){
+		ByteBuffer[] old=table;
+		long oldCapacity=capacity;
+		allocateTable(capacity*2);
+		for(long slot=0;slot<oldCapacity;slot++){
+			long entry=old[(int)(slot>>>SLOT_SHIFT)].getLong((int)(slot&(SLOTS_PER_SEGMENT-1))*8);
+			if(entry!=0){
+				insert(entry);
+			}
+		}
+	}
+
+	/* Allocates an empty table of the given capacity (a power of two) - new
+	 * direct buffers are always zeroed */
+	void allocateTable(long slots){
+		capacity=slots;
+		int count=(int)((slots+SLOTS_PER_SEGMENT-1)>>>SLOT_SHIFT);
+		table=new ByteBuffer[count];
+		for(int i=0;i<count;i++){
+			table[i]=ByteBuffer.allocateDirect((int)Math.min(slots,SLOTS_PER_SEGMENT)*8).order(ByteOrder.nativeOrder());
+		}
+	}
+
+	/* Returns the home slot of a hash from its top half, before masking */
+	static long home(int tag){
+		return tag&0xFFFFFFFFL;
+	}
+}
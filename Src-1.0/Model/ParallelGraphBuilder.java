@@ -0,0 +1,348 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* This class contains the logic which builds the transition graph using all
+ * available processors - this class is never instantiated. The graph is
+ * explored one level at a time: the nodes of the current level are divided
+ * between fork/join tasks, which find every transition out of their nodes and
+ * record the resulting configurations in a shared concurrent set. Once a level
+ * has been expanded, the new nodes are numbered in a single sequential pass in
+ * the order that the breadth first builder would have discovered them, so the
+ * node IDs (and therefore the render) are identical to
+ * TransitionGraph.buildGraph(TransitionGraph.BREADTH_FIRST). When the state
+ * limit cuts a level short, the tasks stop adding configurations as soon as
+ * the limit is passed, so on several processors which of the level's nodes
+ * are kept can depend on the order in which the tasks ran */
+public class ParallelGraphBuilder {
+
+	/* The largest number of nodes which a single task will expand
+	 * without splitting its range in two */
+	static final int CHUNK_SIZE=64;
+
+	/* A configuration found while expanding a level, which serves as the
+	 * key of the concurrent set as well as the record of who found it first */
+	static class Discovery {
+
+		/* The configuration of the new node and its hash */
+		long[] configuration;
+		long hash;
+
+		/* The earliest (source node ID, event) pair which leads to this
+		 * configuration, packed as source*2^32+event - the smallest pair
+		 * is the one which the sequential builder would have used */
+		AtomicLong first;
+
+		/* The set of events which can be completed from the new node, only
+		 * computed once the node has been numbered */
+		long[] enabled;
+
+		/* The ID assigned to the node once the level has been numbered */
+		int id=-1;
+
+		Discovery(long[] configuration, long hash, long first){
+			this.configuration=configuration;
+			this.hash=hash;
+			this.first=new AtomicLong(first);
+		}
+
+		/* Lowers the recorded first discovery to the given pair if it is
+		 * earlier than the one currently held */
+		void discoveredBy(long pair){
+			long current=first.get();
+			while(pair<current && !first.compareAndSet(current,pair)){
+				current=first.get();
+			}
+		}
+
+		@Override
+		public int hashCode(){
+			return (int)(hash^(hash>>>32));
+		}
+
+		@Override
+		public boolean equals(Object other){
+			Discovery that=(Discovery)other;
+			return hash==that.hash && EventSet.equal(configuration,that.configuration);
+		}
+	}
+
+	/* The transitions found by one task, in the order that they were found -
+	 * each transition is a source node, an event and the discovered target */
+	static class EdgeBuffer {
+		int[] sources=new int[16];
+		int[] events=new int[16];
+		Discovery[] targets=new Discovery[16];
+		int size=0;
+
+		/* The first node of the task's range which was not fully expanded
+		 * because the exploration was stopped */
+		int expanded;
+
+		void add(int source, int event, Discovery target){
+			if(size==sources.length){
+				sources=Arrays.copyOf(sources,size*2);
+				events=Arrays.copyOf(events,size*2);
+				targets=Arrays.copyOf(targets,size*2);
+			}
+			sources[size]=source;
+			events[size]=event;
+			targets[size]=target;
+			size++;
+		}
+	}
+
+	/* Expands a contiguous range of the nodes on the current level */
+	static class ExpandTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/* The range of node IDs to expand */
+		int from;
+		int to;
+
+		/* The set of configurations on the next level */
+		ConcurrentHashMap<Discovery,Discovery> discovered;
+
+		/* One buffer per chunk of the level, so that each task writes only
+		 * to its own buffer and the buffers can be merged in order */
+		EdgeBuffer[] buffers;
+
+		/* The ID of the first node of the level, used to locate this
+		 * task's buffer */
+		int levelStart;
+
+		/* The graph being built and the enabled set of each node - neither
+		 * is modified while a level is being expanded */
+		CompactTransitionGraph graph;
+		ArrayList<long[]> enabled;
+
+		/* The limits on the exploration */
+		ExplorationBudget budget;
+
+		ExpandTask(int from, int to, int levelStart, ConcurrentHashMap<Discovery,Discovery> discovered,
+				EdgeBuffer[] buffers, CompactTransitionGraph graph, ArrayList<long[]> enabled,
+				ExplorationBudget budget){
+			this.from=from;
+			this.to=to;
+			this.levelStart=levelStart;
+			this.discovered=discovered;
+			this.buffers=buffers;
+			this.graph=graph;
+			this.enabled=enabled;
+			this.budget=budget;
+		}
+
+		@Override
+		protected void compute(){
+
+			/* Split ranges which are larger than one chunk, keeping the split
+			 * point on a chunk boundary so each chunk maps to one buffer */
+			if(to-from>CHUNK_SIZE){
+				int chunks=(to-from+CHUNK_SIZE-1)/CHUNK_SIZE;
+				int middle=from+(chunks/2)*CHUNK_SIZE;
+				invokeAll(new ExpandTask(from,middle,levelStart,discovered,buffers,graph,enabled,budget),
+						new ExpandTask(middle,to,levelStart,discovered,buffers,graph,enabled,budget));
+				return;
+			}
+
+			/* The limits are checked once per chunk, apart from the state
+			 * limit and the stop flag which are checked before every node and
+			 * every new configuration. Only once more nodes have been found
+			 * than the limit allows is it certain that the graph will be
+			 * truncated, and the node being expanded is then left incomplete
+			 * with the transitions found so far, as the sequential builders
+			 * leave it */
+			EdgeBuffer buffer=new EdgeBuffer();
+			buffer.expanded=from;
+			buffers[(from-levelStart)/CHUNK_SIZE]=buffer;
+			if(budget.exhausted(graph.size()+discovered.size(),graph.size()-from+discovered.size())){
+				return;
+			}
+			for(int node=from;node<to;node++){
+				int states=graph.size()+discovered.size();
+				if(budget.stopped || (states>budget.maxStates && budget.full(states))){
+					return;
+				}
+				long[] sourceConfiguration=graph.configuration(node);
+				long[] sourceEnabled=enabled.get(node);
+				long sourceHash=graph.hash(node);
+
+				/* For every event which can be completed from this node */
+				for(int i=EventSet.next(sourceEnabled,0);i!=-1;i=EventSet.next(sourceEnabled,i+1)){
+
+					/* Form the resulting configuration and find the copy which
+					 * another task has already added, or add it to the set if
+					 * there is still room */
+					long[] configuration=sourceConfiguration.clone();
+					EventSet.add(configuration,i);
+					long pair=((long)node<<32)|i;
+					Discovery candidate=new Discovery(configuration,sourceHash^TransitionGraph.eventKeys[i],pair);
+					Discovery existing=discovered.get(candidate);
+					if(existing==null){
+						states=graph.size()+discovered.size();
+						if(budget.stopped || (states>budget.maxStates && budget.full(states))){
+							return;
+						}
+						existing=discovered.putIfAbsent(candidate,candidate);
+					}
+					if(existing!=null){
+						existing.discoveredBy(pair);
+						candidate=existing;
+					}
+					buffer.add(node,i,candidate);
+				}
+				buffer.expanded=node+1;
+			}
+		}
+	}
+
+	/* Finds the enabled sets of a range of the numbered discoveries of a
+	 * level, from the enabled set of the parent of each */
+	static class EnableTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		ArrayList<Discovery> found;
+		int from;
+		int to;
+		ArrayList<long[]> enabled;
+
+		EnableTask(ArrayList<Discovery> found, int from, int to, ArrayList<long[]> enabled){
+			this.found=found;
+			this.from=from;
+			this.to=to;
+			this.enabled=enabled;
+		}
+
+		@Override
+		protected void compute(){
+			if(to-from>CHUNK_SIZE){
+				int middle=(from+to)>>>1;
+				invokeAll(new EnableTask(found,from,middle,enabled),new EnableTask(found,middle,to,enabled));
+				return;
+			}
+			for(int i=from;i<to;i++){
+				Discovery discovery=found.get(i);
+				int parent=(int)(discovery.first.get()>>>32);
+				int event=(int)discovery.first.get();
+				discovery.enabled=TransitionGraph.enabledAfter(enabled.get(parent),discovery.configuration,event);
+			}
+		}
+	}
+
+	/* Traverses the graph level by level from the empty node, which must
+	 * already be the only node in the graph, until the graph is complete or
+	 * the budget runs out */
+	static void traverse(CompactTransitionGraph graph, ArrayList<long[]> enabled, ExplorationBudget budget){
+		ForkJoinPool pool=new ForkJoinPool();
+		try{
+			int levelStart=0;
+			int levelEnd=graph.size();
+
+			/* Continue until a level produces no new nodes */
+			while(levelStart<levelEnd){
+
+				/* A level beyond the depth limit is left unexpanded, as are
+				 * all of the levels after it */
+				int level=graph.level(levelStart);
+				if(level>=budget.maxDepth){
+					for(int i=levelStart;i<levelEnd;i++){
+						if(!EventSet.isEmpty(enabled.get(i))){
+							budget.tooDeep(level);
+						}
+						TransitionGraph.leaveUnexpanded(graph,enabled,i);
+					}
+					break;
+				}
+
+				/* Expand every node of the current level in parallel */
+				ConcurrentHashMap<Discovery,Discovery> discovered=new ConcurrentHashMap<Discovery,Discovery>();
+				EdgeBuffer[] buffers=new EdgeBuffer[(levelEnd-levelStart+CHUNK_SIZE-1)/CHUNK_SIZE];
+				pool.invoke(new ExpandTask(levelStart,levelEnd,levelStart,discovered,buffers,graph,enabled,budget));
+
+				/* Number the new nodes in order of their first discovery - this
+				 * is the canonical numbering used by the breadth first builder */
+				ArrayList<Discovery> found=new ArrayList<Discovery>(discovered.values());
+				found.sort(new Comparator<Discovery>(){
+					@Override
+					public int compare(Discovery a, Discovery b){
+						return Long.compare(a.first.get(),b.first.get());
+					}
+				});
+				int kept=0;
+				for(;kept<found.size();kept++){
+
+					/* Only the earliest discoveries are kept if there is not
+					 * room for them all */
+					if(graph.size()>=budget.maxStates){
+						budget.full(graph.size());
+						break;
+					}
+					Discovery discovery=found.get(kept);
+					int parent=(int)(discovery.first.get()>>>32);
+					int event=(int)discovery.first.get();
+					discovery.id=graph.addNode(discovery.configuration,discovery.hash,parent,event);
+				}
+
+				/* Find the enabled sets of the nodes kept, in parallel, while
+				 * their parents' sets are still held */
+				pool.invoke(new EnableTask(found,0,kept,enabled));
+				for(int i=0;i<kept;i++){
+					enabled.add(found.get(i).enabled);
+				}
+
+				/* Merge the per-task transition buffers - the buffers cover the
+				 * level in node order, so the transitions are added in the same
+				 * order as the sequential builder adds them. A transition to a
+				 * node which there was no room for leaves its source incomplete */
+				for(int i=0;i<buffers.length;i++){
+					EdgeBuffer buffer=buffers[i];
+					for(int j=0;j<buffer.size;j++){
+						if(buffer.targets[j].id==-1){
+							graph.markUnexpanded(buffer.sources[j]);
+						}
+						else{
+							graph.addTransition(buffer.sources[j],buffer.events[j],buffer.targets[j].id);
+						}
+					}
+
+					/* The enabled sets of the expanded nodes are no longer
+					 * needed, and the nodes which were not reached are
+					 * incomplete */
+					int chunkEnd=Math.min(levelEnd,levelStart+(i+1)*CHUNK_SIZE);
+					for(int node=levelStart+i*CHUNK_SIZE;node<chunkEnd;node++){
+						if(node<buffer.expanded){
+							enabled.set(node,null);
+						}
+						else{
+							TransitionGraph.leaveUnexpanded(graph,enabled,node);
+						}
+					}
+				}
+
+				/* If the exploration has been stopped, the level which has just
+				 * been numbered is left unexpanded */
+				if(budget.stopped){
+					for(int i=levelEnd;i<graph.size();i++){
+						TransitionGraph.leaveUnexpanded(graph,enabled,i);
+					}
+					break;
+				}
+
+				/* Move on to the level which has just been numbered */
+				levelStart=levelEnd;
+				levelEnd=graph.size();
+			}
+		}
+		finally{
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,14 @@
+package Model;
+
+/* Receives progress reports from the Parser while it reads its input, and
+ * allows a long-running parse to be abandoned part way through */
+public interface ParseMonitor {
+
+	/* Called each time a block of input has been read, with the total
+	 * number of characters read so far */
+	void progress(long charactersRead);
+
+	/* Returns true if the parse should be abandoned - the parser then
+	 * stops by throwing a CancellationException */
+	boolean isCancelled();
+}
@@ -0,0 +1,242 @@
+package Model;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.concurrent.CancellationException;
+
+/* Parses the textual definition of a Prime Event Structure. The input is a
+ * sequence of statements separated by semicolons, each of which is either an
+ * event declaration ("a"), a causality relation ("a<b") or a conflict relation
+ * ("a#b"). Events must be declared before they are used as part of a relation,
+ * and names may only contain the characters 0-9, A-Z and a-z. Whitespace is
+ * ignored wherever it appears.
+ * The input is read in a single pass, one character at a time, so the time
+ * taken is linear in the length of the input and the text never has to be
+ * held in memory as a whole. The routine tries its best to continue in the
+ * face of errors - a statement containing an error is reported along with its
+ * line and column, and skipped. An optional monitor is told how much of the
+ * input has been read after every block, and may cancel the parse */
+public class Parser {
+
+	/* The number of characters read from the input at a time */
+	static final int BUFFER_SIZE=8192;
+
+	/* The source of the input and the block of it currently being read */
+	Reader reader;
+	char[] buffer=new char[BUFFER_SIZE];
+	int length=0;
+	int position=0;
+
+	/* The total number of characters read from the input so far */
+	long charactersRead=0;
+
+	/* Receives progress reports, or null if none are wanted */
+	ParseMonitor monitor;
+
+	/* The line and column of the next character to be read */
+	int line=1;
+	int column=1;
+
+	/* The definition being built */
+	Definition definition=new Definition();
+
+	/* The names on either side of the operator in the current statement */
+	StringBuilder first=new StringBuilder();
+	StringBuilder second=new StringBuilder();
+
+	/* The operator of the current statement ('<' or '#'), or 0 if
+	 * none has been read yet */
+	char operator=0;
+
+	/* Set if the current statement contains more than one operator */
+	boolean extraOperator=false;
+
+	/* The position at which the current statement begins - this is
+	 * -1 while only whitespace has been read */
+	int statementLine=-1;
+	int statementColumn;
+
+	/* The first invalid character in the current statement and its
+	 * position - the line is -1 if there is no invalid character */
+	char invalidCharacter;
+	int invalidLine=-1;
+	int invalidColumn;
+
+	/* Creates a parser for the given input */
+	Parser(Reader reader, ParseMonitor monitor){
+		this.reader=reader;
+		this.monitor=monitor;
+	}
+
+	/* Parses the whole of the given input and returns the definition it
+	 * contains, along with any errors that were found */
+	public static Definition parse(Reader reader) throws IOException{
+		return parse(reader,null);
+	}
+
+	/* As above, reporting progress to the given monitor - throws a
+	 * CancellationException if the monitor cancels the parse */
+	public static Definition parse(Reader reader, ParseMonitor monitor) throws IOException{
+		Parser parser=new Parser(reader,monitor);
+		parser.run();
+		return parser.definition;
+	}
+
+	/* Reads every character of the input and acts upon it */
+	void run() throws IOException{
+		int next;
+		while((next=read())!=-1){
+			char character=(char)next;
+
+			/* A semicolon ends the current statement */
+			if(character==';'){
+				endStatement();
+			}
+
+			/* Any other non-whitespace character is part of the statement */
+			else if(character!=' ' && character!='\t' && character!='\r' && character!='\n'){
+
+				/* Record where the statement begins */
+				if(statementLine==-1){
+					statementLine=line;
+					statementColumn=column;
+				}
+
+				/* An operator separates the two names of a relation */
+				if(character=='<' || character=='#'){
+					if(operator==0){
+						operator=character;
+					}
+					else{
+						extraOperator=true;
+					}
+				}
+
+				/* Valid characters are appended to the name on the current
+				 * side of the operator */
+				else if((character>='0' && character<='9') || (character>='A' && character<='Z') ||
+						(character>='a' && character<='z')){
+					if(operator==0){
+						first.append(character);
+					}
+					else{
+						second.append(character);
+					}
+				}
+
+				/* Only the first invalid character of a statement is reported */
+				else if(invalidLine==-1){
+					invalidCharacter=character;
+					invalidLine=line;
+					invalidColumn=column;
+				}
+			}
+
+			/* Move the position on past the character */
+			if(character=='\n'){
+				line++;
+				column=1;
+			}
+			else{
+				column++;
+			}
+		}
+
+		/* The final statement does not need to be followed by a semicolon */
+		endStatement();
+	}
+
+	/* Returns the next character of the input, or -1 at the end of the input */
+	int read() throws IOException{
+		if(position==length){
+
+			/* Report progress on the block just finished, and stop
+			 * if the monitor has cancelled the parse */
+			if(monitor!=null){
+				monitor.progress(charactersRead);
+				if(monitor.isCancelled()){
+					throw new CancellationException();
+				}
+			}
+			length=reader.read(buffer,0,BUFFER_SIZE);
+			position=0;
+			if(length<=0){
+				length=0;
+				return -1;
+			}
+			charactersRead+=length;
+		}
+		return buffer[position++];
+	}
+
+	/* Adds the statement which has just been read to the definition, or reports
+	 * why it cannot be added, and then prepares for the next statement */
+	void endStatement(){
+
+		/* Empty statements are simply ignored */
+		if(statementLine!=-1){
+			if(invalidLine!=-1){
+				error(invalidLine,invalidColumn,"Invalid character '"+invalidCharacter+
+						"' - Use only ASCII 0-9, A-Z or a-z");
+			}
+
+			/* A statement without an operator declares an event */
+			else if(operator==0){
+				String name=first.toString();
+				if(definition.symbols.add(name)==-1){
+					error(statementLine,statementColumn,"Event already exists: "+name);
+				}
+			}
+			else{
+				relation();
+			}
+		}
+
+		/* Reset the state for the next statement */
+		first.setLength(0);
+		second.setLength(0);
+		operator=0;
+		extraOperator=false;
+		statementLine=-1;
+		invalidLine=-1;
+	}
+
+	/* Adds a causality or conflict relation from the current statement */
+	void relation(){
+		String type=(operator=='<')?"causality":"conflict";
+
+		/* Check the form of the relation */
+		if(extraOperator){
+			error(statementLine,statementColumn,"Parser error, too many arguments for "+operator+" relation");
+			return;
+		}
+		if(first.length()==0 || second.length()==0){
+			error(statementLine,statementColumn,"Invalid "+type+" relation - missing argument");
+			return;
+		}
+		String name1=first.toString();
+		String name2=second.toString();
+		if(name1.equals(name2)){
+			error(statementLine,statementColumn,"Invalid "+type+" relation - arguments must be distinct");
+			return;
+		}
+
+		/* Both arguments must already have been declared */
+		int event1=definition.symbols.lookup(name1);
+		int event2=definition.symbols.lookup(name2);
+		if(event1==-1 || event2==-1){
+			error(statementLine,statementColumn,"Invalid "+type+" relation - one or more events are undefined");
+			return;
+		}
+
+		/* Add the pair of IDs to the appropriate relation */
+		IntList pairs=(operator=='<')?definition.precedes:definition.conflicts;
+		pairs.add(event1);
+		pairs.add(event2);
+	}
+
+	/* Records an error at the given position */
+	void error(int line, int column, String message){
+		definition.errors.add("Line "+line+", column "+column+": "+message);
+	}
+}
@@ -0,0 +1,225 @@
+package Model;
+
+import java.util.Arrays;
+
+/* The state store (see StateStore) which shares the common prefixes of the
+ * configurations rather than storing each one in full. Every node other than
+ * the empty configuration is discovered from a parent node by completing a
+ * single event, so a node is held only as its parent's ID and that event - a
+ * parent-pointer trie in which the configuration of a node is the set of
+ * events on the path up to the root. A node therefore costs the same few bytes
+ * however many events the structure has, where the other stores need a bit for
+ * every event, so for deep structures this saves close to the size of an
+ * average configuration per node.
+ * The number of events of each node is kept with its discovery, so its level
+ * is known at once. The price is that a configuration has to be rebuilt by
+ * walking up the path whenever it is needed (to read it or to test whether it
+ * holds an event), in time proportional to its level. The most recently
+ * rebuilt configurations are kept in a small cache, which serves the repeated
+ * reads of the builders (each node is read once for every event enabled in it)
+ * and of the renderer, and the walk up from a node stops at the first ancestor
+ * found in the cache. Lookups compare a candidate with the configuration sought
+ * by walking its path and testing each event, so they need no rebuilding, and
+ * as the hashes are 64 bits a walk is almost never made for a node which turns
+ * out not to match */
+public class PrefixStateStore implements StateStore {
+
+	/* The number of entries in the cache of rebuilt configurations (a power of two) */
+	static final int CACHE_SIZE=1024;
+
+	/* The number of words in each configuration */
+	int words;
+
+	/* The node and event from which each node was first discovered, and the
+	 * number of events of each node, in ID order */
+	int[] parents;
+	int[] parentEvents;
+	int[] levels;
+
+	/* The hash of each node's configuration, in ID order, until the store is
+	 * trimmed */
+	long[] hashes;
+
+	/* The node ID stored in each slot of the table, -1 marks an empty slot */
+	int[] slots;
+
+	/* The number of configurations held */
+	int size=0;
+
+	/* The recently rebuilt configurations, each in the entry chosen by its ID.
+	 * Entries are replaced whole and never modified, so the builders' threads
+	 * can share the cache without locking - a thread may miss an entry written
+	 * by another, but never sees one half-written */
+	CachedConfiguration[] cache=new CachedConfiguration[CACHE_SIZE];
+
+	/* A rebuilt configuration together with the ID of its node */
+	static class CachedConfiguration {
+		final int id;
+		final long[] configuration;
+
+		CachedConfiguration(int id, long[] configuration){
+			this.id=id;
+			this.configuration=configuration;
+		}
+	}
+
+	/* Creates an empty store for configurations of the given number of events */
+	public PrefixStateStore(int events){
+		words=EventSet.words(events);
+		parents=new int[64];
+		parentEvents=new int[64];
+		levels=new int[64];
+		hashes=new long[64];
+		slots=new int[128];
+		Arrays.fill(slots,-1);
+	}
+
+	@Override
+	public int get(long[] configuration, long hash){
+		int mask=slots.length-1;
+
+		/* Probe from the home slot until the configuration or an empty slot
+		 * is found */
+		for(int slot=ConfigurationIndex.spread(hash)&mask;slots[slot]!=-1;slot=(slot+1)&mask){
+			int id=slots[slot];
+			if(hashes[id]==hash && matches(id,configuration)){
+				return id;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int add(long[] configuration, long hash, int parent, int event){
+		if(size==hashes.length){
+			parents=Arrays.copyOf(parents,size*2);
+			parentEvents=Arrays.copyOf(parentEvents,size*2);
+			levels=Arrays.copyOf(levels,size*2);
+			hashes=Arrays.copyOf(hashes,size*2);
+		}
+		parents[size]=parent;
+		parentEvents[size]=event;
+		levels[size]=(parent==-1)?0:levels[parent]+1;
+		hashes[size]=hash;
+
+		/* Grow the table before it becomes too full for probing to stay short */
+		if((size+1)*2>slots.length){
+			slots=new int[slots.length*2];
+			Arrays.fill(slots,-1);
+			for(int id=0;id<size;id++){
+				insert(id);
+			}
+		}
+		insert(size);
+		return size++;
+	}
+
+	@Override
+	public int size(){
+		return size;
+	}
+
+	@Override
+	public long hash(int id){
+		return hashes[id];
+	}
+
+	/* This takes time proportional to the level of the node, unless its
+	 * configuration is in the cache */
+	@Override
+	public boolean contains(int id, int event){
+		return EventSet.contains(materialise(id),event);
+	}
+
+	@Override
+	public int count(int id){
+		return levels[id];
+	}
+
+	@Override
+	public long[] configuration(int id){
+		return materialise(id).clone();
+	}
+
+	@Override
+	public int parent(int id){
+		return parents[id];
+	}
+
+	@Override
+	public int event(int id){
+		return parentEvents[id];
+	}
+
+	/* Releases the hashes and the table, and trims the discoveries to their
+	 * contents - the cache is kept for reading the finished graph */
+	@Override
+	public void trim(){
+		parents=Arrays.copyOf(parents,size);
+		parentEvents=Arrays.copyOf(parentEvents,size);
+		levels=Arrays.copyOf(levels,size);
+		hashes=null;
+		slots=null;
+	}
+
+	/* Returns the configuration of the node, rebuilding it and placing it in
+	 * the cache if it is not already there - the result is shared with the
+	 * cache, so must not be modified */
+	long[] materialise(int id){
+		CachedConfiguration cached=cache[id&(CACHE_SIZE-1)];
+		if(cached!=null && cached.id==id){
+			return cached.configuration;
+		}
+
+		/* Collect the events on the path up to the first cached ancestor, or
+		 * to the root */
+		long[] configuration=null;
+		int node=id;
+		IntList path=new IntList();
+		while(parents[node]!=-1){
+			if(node!=id){
+				cached=cache[node&(CACHE_SIZE-1)];
+				if(cached!=null && cached.id==node){
+					configuration=cached.configuration.clone();
+					break;
+				}
+			}
+			path.add(parentEvents[node]);
+			node=parents[node];
+		}
+		if(configuration==null){
+			configuration=new long[words];
+		}
+		for(int i=0;i<path.size();i++){
+			EventSet.add(configuration,path.get(i));
+		}
+		cache[id&(CACHE_SIZE-1)]=new CachedConfiguration(id,configuration);
+		return configuration;
+	}
+
+	/* Returns true if the configuration of the node equals the given one -
+	 * the events on the node's path are all different, so this is so when
+	 * there are as many of them as it has events and each of them is in the
+	 * given configuration */
+	boolean matches(int id, long[] configuration){
+		if(levels[id]!=EventSet.size(configuration)){
+			return false;
+		}
+		for(int node=id;parents[node]!=-1;node=parents[node]){
+			if(!EventSet.contains(configuration,parentEvents[node])){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/* Places an ID in the first free slot of its probe sequence */
+	void insert(int id){
+		int mask=slots.length-1;
+		int slot=ConfigurationIndex.spread(hashes[id])&mask;
+		while(slots[slot]!=-1){
+			slot=(slot+1)&mask;
+		}
+		slots[slot]=id;
+	}
+}
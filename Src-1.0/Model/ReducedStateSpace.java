@@ -0,0 +1,205 @@
+package Model;
+
+import java.util.ArrayList;
+
+/* The part of the state space of an event structure which must be explored to
+ * answer questions about its maximal configurations, and so about which
+ * events can ever be completed (an event can be completed exactly when it is
+ * in some maximal configuration). Concurrent events commute, so completing
+ * them in every order only repeats the same configurations, and these
+ * questions can be answered exactly from far fewer states than the full
+ * transition graph holds.
+ * From each configuration only a stubborn set of the enabled events is
+ * completed. It is found by picking an enabled event e: every maximal
+ * configuration above the current one either contains e, or contains an event
+ * in conflict with e, and the causes of that event which are enabled now lead
+ * towards it - so the stubborn set is e together with every enabled event
+ * which is, or causes, an event in conflict with e. Every maximal
+ * configuration is then still reached through one of the events of the set,
+ * and events which are concurrent with e and can never conflict with it are
+ * left until later rather than interleaved with it. The event giving the
+ * smallest set is used, so for events which are all concurrent only one is
+ * completed from each configuration, and the number of states explored is
+ * linear rather than exponential in the number of events.
+ * The exploration is breadth first, like the transition graph builders in
+ * TransitionGraph, and the configurations visited are kept in a state store so
+ * that each is expanded only once */
+public class ReducedStateSpace {
+
+	/* The configurations visited */
+	StateStore states;
+
+	/* The number of transitions followed */
+	long transitions=0;
+
+	/* The IDs of the maximal configurations, in the order they were found */
+	IntList maximal=new IntList();
+
+	/* The events completed in any configuration visited */
+	long[] reachable;
+
+	/* The reason that the exploration is incomplete, or null if it is not */
+	String truncation=null;
+
+	/* Creates an empty result for the loaded structure, keeping the
+	 * configurations in the given empty store */
+	ReducedStateSpace(StateStore states){
+		this.states=states;
+		reachable=EventSet.create(EventStructure.events.length);
+	}
+
+	/* Explores the reduced state space of the loaded structure within the
+	 * budget. If the budget runs out, the maximal configurations and events
+	 * found so far are returned marked as truncated - every one found is
+	 * genuine, but there may be others */
+	public static ReducedStateSpace explore(ExplorationBudget budget){
+		return explore(budget,new ConfigurationIndex(EventStructure.events.length));
+	}
+
+	/* As above, keeping the configurations in the given empty store, which
+	 * must be for the number of events of the loaded structure */
+	public static ReducedStateSpace explore(ExplorationBudget budget, StateStore store){
+		TransitionGraph.generateKeys();
+		budget.start();
+		ReducedStateSpace space=new ReducedStateSpace(store);
+		int events=EventStructure.events.length;
+
+		/* The set of events which can be completed from each state is only
+		 * held until the state has been expanded, and the state IDs serve as
+		 * the queue of states to expand */
+		ArrayList<long[]> enabled=new ArrayList<long[]>();
+		space.states.add(EventSet.create(events),0,-1,-1);
+		enabled.add(TransitionGraph.initialEnabled());
+		int next=0;
+		for(;next<space.states.size();next++){
+			int size=space.states.size();
+			if(next%ExplorationBudget.CHECK_INTERVAL==0 && budget.exhausted(size,size-next)){
+				break;
+			}
+			long[] sourceEnabled=enabled.get(next);
+			enabled.set(next,null);
+			if(EventSet.isEmpty(sourceEnabled)){
+				space.maximal.add(next);
+				continue;
+			}
+			if(budget.tooDeep(space.states.count(next))){
+				continue;
+			}
+
+			/* Complete each event of the stubborn set, recording the
+			 * configurations which have not been seen before */
+			long[] source=space.states.configuration(next);
+			long hash=space.states.hash(next);
+			long[] stubborn=stubborn(sourceEnabled);
+			boolean full=false;
+			for(int e=EventSet.next(stubborn,0);e!=-1 && !full;e=EventSet.next(stubborn,e+1)){
+				long[] configuration=source.clone();
+				EventSet.add(configuration,e);
+				long targetHash=hash^TransitionGraph.eventKeys[e];
+				space.transitions++;
+				if(space.states.get(configuration,targetHash)!=-1){
+					continue;
+				}
+				if(budget.full(space.states.size())){
+					full=true;
+					break;
+				}
+				space.states.add(configuration,targetHash,next,e);
+				EventSet.addAll(space.reachable,configuration);
+				enabled.add(TransitionGraph.enabledAfter(sourceEnabled,configuration,e));
+			}
+			if(full){
+				break;
+			}
+		}
+		space.truncation=budget.truncation();
+		space.states.trim();
+		return space;
+	}
+
+	/* Returns a stubborn set of the given enabled events (see above), which
+	 * must not be empty - the smallest found for any choice of the first event */
+	static long[] stubborn(long[] enabled){
+		CausalClosure closure=EventStructure.closure;
+		long[] best=null;
+		int bestSize=Integer.MAX_VALUE;
+
+		/* The consequences of each enabled event are looked up once, as they
+		 * are worked out on demand (see CausalClosure) */
+		long[][] consequences=new long[EventStructure.events.length][];
+		for(int g=EventSet.next(enabled,0);g!=-1;g=EventSet.next(enabled,g+1)){
+			consequences[g]=closure.consequences(g);
+		}
+		for(int e=EventSet.next(enabled,0);e!=-1 && bestSize>1;e=EventSet.next(enabled,e+1)){
+			long[] set=EventSet.create(EventStructure.events.length);
+			EventSet.add(set,e);
+			int size=1;
+
+			/* Add every other enabled event which conflicts with e or leads to
+			 * an event which does, giving up on e once the set is no smaller
+			 * than the best so far */
+			long[] conflicts=closure.conflicts(e);
+			for(int g=EventSet.next(enabled,0);g!=-1 && size<bestSize;g=EventSet.next(enabled,g+1)){
+				if(g!=e && (EventSet.contains(conflicts,g) || EventSet.intersects(consequences[g],conflicts))){
+					EventSet.add(set,g);
+					size++;
+				}
+			}
+			if(size<bestSize){
+				best=set;
+				bestSize=size;
+			}
+		}
+		return best;
+	}
+
+	/* Returns the number of configurations visited */
+	public int size(){
+		return states.size();
+	}
+
+	/* Returns the number of transitions followed */
+	public long transitions(){
+		return transitions;
+	}
+
+	/* Returns the number of maximal configurations found */
+	public int maximalCount(){
+		return maximal.size();
+	}
+
+	/* Returns a copy of the maximal configuration with the given index */
+	public long[] maximal(int index){
+		return states.configuration(maximal.get(index));
+	}
+
+	/* Returns the events of the maximal configuration with the given index,
+	 * in an order in which they can be completed */
+	public int[] maximalEvents(int index){
+		int state=maximal.get(index);
+		int[] events=new int[states.count(state)];
+		for(int i=events.length-1;i>=0;i--){
+			events[i]=states.event(state);
+			state=states.parent(state);
+		}
+		return events;
+	}
+
+	/* Returns true if the event can be completed in some run of the structure.
+	 * If the exploration is truncated, false only means that the event has not
+	 * been completed in any configuration visited so far, not that it never
+	 * can be */
+	public boolean isReachable(int event){
+		return EventSet.contains(reachable,event);
+	}
+
+	/* Returns true if the exploration is incomplete because its budget ran out */
+	public boolean isTruncated(){
+		return truncation!=null;
+	}
+
+	/* Returns the reason that the exploration is incomplete, or null if it is not */
+	public String truncation(){
+		return truncation;
+	}
+}
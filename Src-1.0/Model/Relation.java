@@ -0,0 +1,114 @@
+package Model;
+
+/* A binary relation between the events of a structure (causality, conflict
+ * etc.), stored in whichever representation suits its density. Structures
+ * usually have only a few relations per event, and these are best held as
+ * adjacency lists (SparseRelation), while densely related structures are held
+ * as one bitset per event (DenseRelation), where whole rows can be combined
+ * with a configuration a word at a time. The representation is chosen when the
+ * relation is created, from the number of pairs which it actually contains.
+ * Rather than scanning a whole row, callers iterate over the events related
+ * to an event with next(), or combine a row with a set of events directly */
+public abstract class Relation {
+
+	/* The number of events which the relation is over */
+	int size;
+
+	/* Returns true if the first event is related to the second */
+	public abstract boolean get(int from, int to);
+
+	/* Returns the first event at or after the given index to which the given
+	 * event is related, or -1 if there are no more */
+	public abstract int next(int from, int index);
+
+	/* Returns the number of events to which the given event is related */
+	public abstract int degree(int from);
+
+	/* Returns true if every event to which the given event is related is
+	 * in the set (see EventSet) */
+	public abstract boolean rowContainedIn(int from, long[] set);
+
+	/* Returns true if any event to which the given event is related is in
+	 * the set */
+	public abstract boolean rowIntersects(int from, long[] set);
+
+	/* Adds every event to which the given event is related to the set */
+	public abstract void addRow(int from, long[] set);
+
+	/* Removes every event to which the given event is related from the set */
+	public abstract void removeRow(int from, long[] set);
+
+	/* Returns the number of events which the relation is over */
+	public int size(){
+		return size;
+	}
+
+	/* Returns the total number of related pairs */
+	public long pairs(){
+		long pairs=0;
+		for(int i=0;i<size;i++){
+			pairs+=degree(i);
+		}
+		return pairs;
+	}
+
+	/* Creates a relation over the given number of events from a list of pairs
+	 * of event IDs (see Definition). Each pair (a, b) relates a to b if forward
+	 * is set, and b to a if backward is set - both are set for a symmetric
+	 * relation. Duplicate pairs are ignored. The representation which takes
+	 * the least memory is used: adjacency lists take an int per pair, and
+	 * bitsets a bit per possible pair, so bitsets are only used once roughly
+	 * one pair in 32 is present */
+	public static Relation create(int size, IntList pairs, boolean forward, boolean backward){
+
+		/* Count the pairs leaving each event, including any duplicates */
+		int[] degrees=new int[size];
+		for(int i=0;i<pairs.size();i+=2){
+			if(forward){
+				degrees[pairs.get(i)]++;
+			}
+			if(backward){
+				degrees[pairs.get(i+1)]++;
+			}
+		}
+		long total=0;
+		for(int i=0;i<size;i++){
+			total+=degrees[i];
+		}
+
+		/* Compare the memory taken by each representation */
+		long sparseBytes=4L*(size+1)+4L*total;
+		long denseBytes=8L*size*EventSet.words(size);
+		Relation relation;
+		if(denseBytes<sparseBytes){
+			relation=new DenseRelation(size);
+		}
+		else{
+			relation=new SparseRelation(size,degrees);
+		}
+
+		/* Add every pair to the chosen representation */
+		for(int i=0;i<pairs.size();i+=2){
+			if(forward){
+				relation.add(pairs.get(i),pairs.get(i+1));
+			}
+			if(backward){
+				relation.add(pairs.get(i+1),pairs.get(i));
+			}
+		}
+		relation.complete();
+		return relation;
+	}
+
+	/* Creates a relation over no events */
+	public static Relation empty(){
+		return create(0,new IntList(),true,false);
+	}
+
+	/* Relates the first event to the second while the relation is being
+	 * created */
+	abstract void add(int from, int to);
+
+	/* Called once every pair has been added */
+	abstract void complete();
+}
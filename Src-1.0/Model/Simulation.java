@@ -0,0 +1,38 @@
+package Model;
+
+import java.util.Random;
+
+/* Executes the loaded event structure without any threads - this class is
+ * never instantiated. Where the threaded execution lets events race against
+ * each other, a run here repeatedly completes one of the enabled events chosen
+ * at random, until no event is enabled. Each run therefore ends in a maximal
+ * configuration, and is reproducible from the seed of the generator */
+public class Simulation {
+
+	/* Performs a single run from the empty configuration and returns the
+	 * IDs of the completed events in the order that they were completed */
+	public static IntList run(Random random){
+		int n=EventStructure.events.length;
+		long[] configuration=EventSet.create(n);
+		long[] enabled=TransitionGraph.initialEnabled();
+		int[] candidates=new int[n];
+		IntList run=new IntList();
+		while(true){
+			
+			/* List the enabled events - the run is over once there are none */
+			int count=0;
+			for(int i=EventSet.next(enabled,0);i!=-1;i=EventSet.next(enabled,i+1)){
+				candidates[count++]=i;
+			}
+			if(count==0){
+				return run;
+			}
+			
+			/* Complete one of them */
+			int event=candidates[random.nextInt(count)];
+			EventSet.add(configuration,event);
+			enabled=TransitionGraph.enabledAfter(enabled,configuration,event);
+			run.add(event);
+		}
+	}
+}
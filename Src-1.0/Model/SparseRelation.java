@@ -0,0 +1,114 @@
+package Model;
+
+import java.util.Arrays;
+
+/* A relation stored in compressed sparse row form - the events to which each
+ * event is related are held in ascending order in one shared array, and each
+ * event's list is located by its offset into that array. This takes an int
+ * per related pair (plus one per event), so a structure with a few relations
+ * per event takes memory proportional to its size rather than its square */
+public class SparseRelation extends Relation {
+
+	/* The events to which event i is related are held in
+	 * targets[offsets[i]] to targets[offsets[i+1]-1] */
+	int[] offsets;
+	int[] targets;
+
+	/* The number of pairs added to each event's list so far, used only
+	 * while the relation is being created */
+	int[] filled;
+
+	/* Creates a relation over the given number of events, with room for the
+	 * given number of pairs leaving each event */
+	SparseRelation(int size, int[] degrees){
+		this.size=size;
+		offsets=new int[size+1];
+		for(int i=0;i<size;i++){
+			offsets[i+1]=offsets[i]+degrees[i];
+		}
+		targets=new int[offsets[size]];
+		filled=new int[size];
+	}
+
+	@Override
+	void add(int from, int to){
+		targets[offsets[from]+filled[from]++]=to;
+	}
+
+	/* Sorts each list and removes any duplicate pairs, compacting the
+	 * lists so that they are contiguous again */
+	@Override
+	void complete(){
+		int end=0;
+		int start=0;
+		for(int i=0;i<size;i++){
+			int next=offsets[i+1];
+			Arrays.sort(targets,start,next);
+			offsets[i]=end;
+			for(int j=start;j<next;j++){
+				if(j==start || targets[j]!=targets[j-1]){
+					targets[end++]=targets[j];
+				}
+			}
+			start=next;
+		}
+		offsets[size]=end;
+		if(end<targets.length){
+			targets=Arrays.copyOf(targets,end);
+		}
+		filled=null;
+	}
+
+	@Override
+	public boolean get(int from, int to){
+		return Arrays.binarySearch(targets,offsets[from],offsets[from+1],to)>=0;
+	}
+
+	@Override
+	public int next(int from, int index){
+		int position=Arrays.binarySearch(targets,offsets[from],offsets[from+1],index);
+		if(position<0){
+			position=-position-1;
+		}
+		return position<offsets[from+1]?targets[position]:-1;
+	}
+
+	@Override
+	public int degree(int from){
+		return offsets[from+1]-offsets[from];
+	}
+
+	@Override
+	public boolean rowContainedIn(int from, long[] set){
+		for(int i=offsets[from];i<offsets[from+1];i++){
+			if(!EventSet.contains(set,targets[i])){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean rowIntersects(int from, long[] set){
+		for(int i=offsets[from];i<offsets[from+1];i++){
+			if(EventSet.contains(set,targets[i])){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void addRow(int from, long[] set){
+		for(int i=offsets[from];i<offsets[from+1];i++){
+			EventSet.add(set,targets[i]);
+		}
+	}
+
+	@Override
+	public void removeRow(int from, long[] set){
+		for(int i=offsets[from];i<offsets[from+1];i++){
+			EventSet.remove(set,targets[i]);
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package Model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/* An off-heap state store (see OffHeapStateStore) which keeps only a limited
+ * amount of its records in memory, so that it can hold more nodes than the
+ * machine has memory for. Nodes are numbered in the order they are found, and
+ * an exploration mostly reads the nodes it has found most recently, so once the
+ * records in direct memory reach the limit, the oldest full segment is written
+ * out to a file in the spill directory and replaced by a read-only mapping of
+ * that file. The operating system then pages the spilled records in as they
+ * are needed and drops them again under memory pressure. The hash table is
+ * read at random so it always stays in direct memory.
+ * Each file is deleted as soon as it has been mapped (or when the JVM exits, on
+ * systems which do not allow a mapped file to be deleted), so its disk space is
+ * returned once the mapping has been garbage collected */
+public class SpillingStateStore extends OffHeapStateStore {
+
+	/* The directory which the spilled segments are written to */
+	File directory;
+
+	/* The most bytes of records to keep in direct memory */
+	long memory;
+
+	/* The number of leading segments which have been spilled */
+	int spilled=0;
+
+	/* Creates an empty store for configurations of the given number of events,
+	 * keeping at most the given number of bytes of records in direct memory
+	 * (though always at least the segment being filled) */
+	public SpillingStateStore(int events, File directory, long memory){
+		super(events);
+		this.directory=directory;
+		this.memory=memory;
+	}
+
+	/* Allocates the next segment, first spilling the oldest segments held in
+	 * memory until there is room for it */
+	@Override
+	ByteBuffer allocateSegment(int bytes){
+		while(spilled<segments.size() && (long)(segments.size()-spilled+1)*bytes>memory){
+			spill(spilled);
+			spilled++;
+		}
+		return super.allocateSegment(bytes);
+	}
+
+	/* Writes the given full segment to a new file, and replaces it with a
+	 * mapping of the file */
+	void spill(int index){
+		ByteBuffer segment=segments.get(index);
+		try{
+			File file=File.createTempFile("states",".segment",directory);
+			RandomAccessFile output=new RandomAccessFile(file,"rw");
+			try{
+				FileChannel channel=output.getChannel();
+				ByteBuffer source=segment.duplicate();
+				source.clear();
+				while(source.hasRemaining()){
+					channel.write(source);
+				}
+				segments.set(index,channel.map(FileChannel.MapMode.READ_ONLY,0,segment.capacity())
+						.order(ByteOrder.nativeOrder()));
+			}
+			finally{
+				output.close();
+			}
+			if(!file.delete()){
+				file.deleteOnExit();
+			}
+		}catch(IOException e){
+			throw new UncheckedIOException("Unable to spill states to "+directory,e);
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package Model;
+
+/* A read-only view of a state transition graph. The states (nodes) are
+ * identified by consecutive IDs from 0, where state 0 is the empty
+ * configuration, and the transitions out of each state are identified by
+ * their position from 0 to degree-1. Every state also belongs to the level
+ * given by its number of completed events, and the states of a level can be
+ * visited by position within the level. Every method takes constant time
+ * unless stated otherwise */
+public interface StateGraph {
+
+	/* Returns the number of states */
+	int size();
+
+	/* Returns the total number of transitions */
+	int transitions();
+
+	/* Returns the number of transitions out of the state */
+	int degree(int state);
+
+	/* Returns the state reached by the given transition out of the state */
+	int target(int state, int index);
+
+	/* Returns the event which labels the given transition out of the state */
+	int label(int state, int index);
+
+	/* Returns the state reached by completing the event from the state, or -1
+	 * if the event cannot be completed there - this takes time proportional to
+	 * the degree of the state */
+	int successor(int state, int event);
+
+	/* Returns the number of levels, i.e. one more than the largest number of
+	 * events in any state */
+	int levels();
+
+	/* Returns the number of states on the level */
+	int levelSize(int level);
+
+	/* Returns the state at the given position of the level - the states of a
+	 * level are in ID order */
+	int stateAt(int level, int index);
+
+	/* Returns true if the graph is incomplete because its exploration was
+	 * limited or cancelled (see ExplorationBudget) */
+	boolean isTruncated();
+
+	/* Returns the reason that the graph is incomplete, or null if it is not */
+	String truncation();
+
+	/* Returns true if every transition out of the state is in the graph - this
+	 * is only false for states left unexpanded when the graph is truncated */
+	boolean isExpanded(int state);
+
+	/* Returns the level of the state, i.e. its number of completed events */
+	int level(int state);
+
+	/* Returns true if the state's configuration contains the event - if the
+	 * states are kept in a PrefixStateStore, this takes time proportional to
+	 * the level of the state */
+	boolean contains(int state, int event);
+
+	/* Returns a copy of the state's configuration (see EventSet) */
+	long[] configuration(int state);
+
+	/* Returns the events of the state in the order that they were completed
+	 * on the path by which the state was first discovered - this takes time
+	 * proportional to the level of the state */
+	int[] events(int state);
+}
@@ -0,0 +1,173 @@
+package Model;
+
+import java.util.Random;
+
+/* An estimate of the size of the transition graph of the loaded event
+ * structure made in a bounded time, so that a build which would take too long
+ * or be cut short by its limits can be refused or warned about beforehand.
+ * The estimate follows Knuth's method of random probes: a probe walks down
+ * from the empty configuration choosing each step uniformly at random, and the
+ * product of the numbers of choices along the way, taken at each depth, is an
+ * unbiased estimate of the number of nodes at that depth of a tree. The
+ * transition graph is not a tree, as a configuration is reached by every order
+ * of its concurrent events, so the probes walk the spanning tree used by
+ * ConfigurationStream instead, in which each configuration is generated from
+ * exactly one other. The enabled events and the edges out of each state on a
+ * probe come from the same rules as the graph builders use (see
+ * TransitionGraph.enabledAfter), so the estimates of states, of states at each
+ * level and of transitions are all unbiased.
+ * The estimates from the probes are averaged and given 95% confidence
+ * intervals from their spread. The estimates of a single probe are heavily
+ * skewed on unbalanced structures - a few probes find large subtrees and most
+ * do not - so with few probes the intervals are optimistic */
+public class StateSpaceEstimate {
+
+	/* The number of standard errors either side of the mean covered by a
+	 * 95% confidence interval */
+	static final double Z=1.96;
+
+	/* The number of probes made */
+	int probes;
+
+	/* The sums and sums of squares of each probe's estimates of the states,
+	 * the transitions and the states at each level */
+	double states, statesSquared;
+	double transitions, transitionsSquared;
+	double[] levels, levelsSquared;
+
+	/* The time taken */
+	long millis;
+
+	/* Creates an empty estimate for the loaded structure */
+	StateSpaceEstimate(){
+		levels=new double[EventStructure.events.length+1];
+		levelsSquared=new double[EventStructure.events.length+1];
+	}
+
+	/* Makes probes for the given number of milliseconds, or until the given
+	 * number of probes have been made - at least one probe is always made */
+	public static StateSpaceEstimate estimate(long maxMillis, int maxProbes, Random random){
+		long start=System.currentTimeMillis();
+		StateSpaceEstimate estimate=new StateSpaceEstimate();
+		double[] probeLevels=new double[estimate.levels.length];
+		do{
+			estimate.probe(random,probeLevels);
+			estimate.millis=System.currentTimeMillis()-start;
+		}while(estimate.probes<maxProbes && estimate.millis<maxMillis);
+		return estimate;
+	}
+
+	/* Makes one probe, adding its estimates to the sums - the array is used
+	 * to hold the estimates at each level */
+	void probe(Random random, double[] probeLevels){
+		int events=EventStructure.events.length;
+		long[] configuration=EventSet.create(events);
+		long[] maximal=EventSet.create(events);
+		long[] enabled=TransitionGraph.initialEnabled();
+		int[] children=new int[events];
+		double weight=1;
+		double probeStates=0;
+		double probeTransitions=0;
+		int level=0;
+		while(true){
+			probeLevels[level]=weight;
+			probeStates+=weight;
+			probeTransitions+=weight*EventSet.size(enabled);
+
+			/* Choose among the events which generate a child in the tree */
+			int count=0;
+			for(int e=EventSet.next(enabled,0);e!=-1;e=EventSet.next(enabled,e+1)){
+				if(ConfigurationStream.StateSpliterator.generates(maximal,e)){
+					children[count++]=e;
+				}
+			}
+			if(count==0){
+				break;
+			}
+			weight*=count;
+			int event=children[random.nextInt(count)];
+			EventSet.add(configuration,event);
+			EventStructure.succeeds.removeRow(event,maximal);
+			EventSet.add(maximal,event);
+			enabled=TransitionGraph.enabledAfter(enabled,configuration,event);
+			level++;
+		}
+
+		/* A probe ending at a level estimates none below it */
+		for(int k=0;k<probeLevels.length;k++){
+			double value=(k<=level)?probeLevels[k]:0;
+			levels[k]+=value;
+			levelsSquared[k]+=value*value;
+		}
+		states+=probeStates;
+		statesSquared+=probeStates*probeStates;
+		transitions+=probeTransitions;
+		transitionsSquared+=probeTransitions*probeTransitions;
+		probes++;
+	}
+
+	/* Returns the 95% confidence interval around the mean of the probes'
+	 * estimates with the given sums, never below zero */
+	double[] interval(double sum, double squares){
+		double mean=sum/probes;
+		if(probes<2){
+			return new double[]{mean,mean};
+		}
+		double variance=Math.max(0,(squares-sum*mean)/(probes-1));
+		double error=Z*Math.sqrt(variance/probes);
+		return new double[]{Math.max(0,mean-error),mean+error};
+	}
+
+	/* Returns the number of probes made */
+	public int probes(){
+		return probes;
+	}
+
+	/* Returns the time taken in milliseconds */
+	public long millis(){
+		return millis;
+	}
+
+	/* Returns the estimated number of states */
+	public double states(){
+		return states/probes;
+	}
+
+	/* Returns the 95% confidence interval of the number of states, as its
+	 * lower and upper ends */
+	public double[] stateInterval(){
+		return interval(states,statesSquared);
+	}
+
+	/* Returns the estimated number of transitions */
+	public double transitions(){
+		return transitions/probes;
+	}
+
+	/* Returns the 95% confidence interval of the number of transitions */
+	public double[] transitionInterval(){
+		return interval(transitions,transitionsSquared);
+	}
+
+	/* Returns the number of levels which any probe reached */
+	public int levels(){
+		int reached=0;
+		for(int k=0;k<levels.length;k++){
+			if(levels[k]>0){
+				reached=k+1;
+			}
+		}
+		return reached;
+	}
+
+	/* Returns the estimated number of states with the given number of events */
+	public double levelSize(int level){
+		return levels[level]/probes;
+	}
+
+	/* Returns the 95% confidence interval of the number of states with the
+	 * given number of events */
+	public double[] levelInterval(int level){
+		return interval(levels[level],levelsSquared[level]);
+	}
+}
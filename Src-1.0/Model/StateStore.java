@@ -0,0 +1,58 @@
+package Model;
+
+/* The store of visited states used while exploring the transition graph: it
+ * holds the configuration of every node found so far (a set of completed
+ * events, see EventSet) together with its hash and the node and event it was
+ * first discovered from, and finds the node with a given configuration. Nodes
+ * are numbered consecutively from 0 in the order they are added, so a node is
+ * always numbered after the node it was discovered from. Once the exploration
+ * is over the lookup is no longer needed, and the store is trimmed to just the
+ * configurations and discoveries.
+ * ConfigurationIndex keeps everything on the Java heap, OffHeapStateStore keeps
+ * it in direct memory which the garbage collector never scans or moves, and
+ * SpillingStateStore moves older configurations out to memory-mapped files.
+ * PrefixStateStore keeps only the discovery of each node, from which its
+ * configuration is rebuilt when needed */
+public interface StateStore {
+
+	/* Returns the ID of the node with the given configuration and hash, or -1
+	 * if no such node has been added */
+	int get(long[] configuration, long hash);
+
+	/* Adds the given configuration, which must not already be present, as
+	 * discovered from the given parent node by completing the given event
+	 * (both -1 for the empty configuration), and returns the ID assigned to it.
+	 * The configuration must be exactly the parent's configuration with the
+	 * event added - PrefixStateStore keeps only the parent and event, and
+	 * rebuilds the configuration from them */
+	int add(long[] configuration, long hash, int parent, int event);
+
+	/* Returns the number of configurations in the store */
+	int size();
+
+	/* Returns the hash of the configuration with the given ID */
+	long hash(int id);
+
+	/* Returns true if the configuration with the given ID contains the event -
+	 * PrefixStateStore takes time proportional to the number of events of the
+	 * configuration for this */
+	boolean contains(int id, int event);
+
+	/* Returns the number of events in the configuration with the given ID */
+	int count(int id);
+
+	/* Returns a copy of the configuration with the given ID */
+	long[] configuration(int id);
+
+	/* Returns the node which the given node was first discovered from, or -1
+	 * for the empty configuration */
+	int parent(int id);
+
+	/* Returns the event completed when the given node was first discovered,
+	 * or -1 for the empty configuration */
+	int event(int id);
+
+	/* Releases the lookup once no more configurations will be added or looked
+	 * up - the configurations and discoveries can still be read */
+	void trim();
+}
@@ -0,0 +1,53 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/* Maps event names to dense integer IDs, in the order in which the events
+ * are declared. The table is built once while parsing, after which the rest
+ * of the model refers to events only by their IDs - names are looked up
+ * again only when something is rendered or written to the console */
+public class SymbolTable {
+
+	/* The ID of each declared name */
+	HashMap<String,Integer> ids=new HashMap<String,Integer>();
+
+	/* The name of each ID */
+	ArrayList<String> names=new ArrayList<String>();
+
+	/* Declares a new event and returns its ID, or returns -1 if an event
+	 * with the same name has already been declared */
+	public int add(String name){
+		if(ids.containsKey(name)){
+			return -1;
+		}
+		int id=names.size();
+		ids.put(name,id);
+		names.add(name);
+		return id;
+	}
+
+	/* Returns the ID of the given name, or -1 if it has not been declared */
+	public int lookup(String name){
+		Integer id=ids.get(name);
+		if(id==null){
+			return -1;
+		}
+		return id.intValue();
+	}
+
+	/* Returns the name of the given ID */
+	public String name(int id){
+		return names.get(id);
+	}
+
+	/* Returns the number of declared events */
+	public int size(){
+		return names.size();
+	}
+
+	/* Returns the names of all events, indexed by ID */
+	public String[] names(){
+		return names.toArray(new String[names.size()]);
+	}
+}
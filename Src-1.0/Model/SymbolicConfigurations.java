@@ -0,0 +1,529 @@
+package Model;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/* The set of configurations of an event structure held symbolically, as a
+ * reduced ordered binary decision diagram (BDD) with a variable for each event,
+ * so that it can be counted and queried without visiting the configurations
+ * one by one. A set of events is a configuration exactly when it contains every
+ * direct cause of each of its events and no declared conflict (a structure in
+ * which some event conflicts with itself is rejected when it is loaded), so the
+ * diagram is the conjunction of one small constraint for each pair of the
+ * precedes and conflicts relations. Concurrent events then only add to the
+ * number of paths through the diagram, not to its size - 40 independent events
+ * give 2^40 configurations but a diagram of one node, and a chain of conflicts
+ * between them only needs a node or two per event.
+ * The size of a diagram depends heavily on the order of its variables, and
+ * related events are best kept close together, so the events are ordered by a
+ * breadth first walk over the causes, consequences and conflicts of each
+ * event, which keeps the two events of each constraint within a few places of
+ * each other whether the constraints form pairs, chains or ladders of
+ * conflicts between chains.
+ * The nodes are held in arrays of primitives, with a hash table making each
+ * node unique and a cache of recent conjunctions, and no operation uses
+ * recursion, so the depth of a diagram is limited only by the number of
+ * events */
+public class SymbolicConfigurations {
+
+	/* The terminal nodes, for the empty set and the set of all assignments */
+	static final int FALSE=0;
+	static final int TRUE=1;
+
+	/* The number of entries in the cache of conjunctions (a power of two) */
+	static final int CACHE_SIZE=1<<18;
+
+	/* The number of variables (events) */
+	int variables;
+
+	/* The event of each variable, in order, and the variable of each event */
+	int[] order;
+	int[] position;
+
+	/* The variable, low child (variable false) and high child (variable
+	 * true) of each node - the terminals have the variable one past the last */
+	int[] var=new int[1024];
+	int[] low=new int[1024];
+	int[] high=new int[1024];
+	int nodes=0;
+
+	/* The hash table making each node unique - a slot holds a node ID, or
+	 * -1 if it is empty */
+	int[] slots;
+
+	/* The cache of conjunctions - the operands and result of each entry, with
+	 * -1 marking an empty entry */
+	int[] cacheA=new int[CACHE_SIZE];
+	int[] cacheB=new int[CACHE_SIZE];
+	int[] cacheResult=new int[CACHE_SIZE];
+
+	/* The stacks used by the conjunction in place of recursion */
+	int[] frameA;
+	int[] frameB;
+	int[] frameStage;
+	int[] results;
+
+	/* The root of the diagram of the configurations */
+	int root;
+
+	/* The limits on the number of nodes and the time taken, or null */
+	ExplorationBudget budget;
+
+	/* Thrown when the budget runs out while building */
+	static class BudgetExhausted extends RuntimeException {
+		private static final long serialVersionUID=1L;
+	}
+
+	/* Creates an empty diagram with the variables in the given order */
+	SymbolicConfigurations(int[] order){
+		variables=order.length;
+		this.order=order;
+		position=new int[variables];
+		for(int i=0;i<variables;i++){
+			position[order[i]]=i;
+		}
+		slots=new int[2048];
+		Arrays.fill(slots,-1);
+		Arrays.fill(cacheA,-1);
+		frameA=new int[variables+2];
+		frameB=new int[variables+2];
+		frameStage=new int[variables+2];
+		results=new int[2*variables+4];
+		var[FALSE]=var[TRUE]=variables;
+		nodes=2;
+	}
+
+	/* Builds the diagram of the configurations of the loaded structure within
+	 * the budget, whose state limit applies to the total number of nodes
+	 * created, including those of intermediate conjunctions which the final
+	 * diagram no longer uses - returns null if the budget runs out first,
+	 * leaving the reason in the budget */
+	public static SymbolicConfigurations build(ExplorationBudget budget){
+		budget.start();
+		SymbolicConfigurations diagram=new SymbolicConfigurations(variableOrder());
+		diagram.budget=budget;
+		try{
+			diagram.root=TRUE;
+
+			/* Conjoin the constraints from the last variable to the first,
+			 * so that the diagram grows from the bottom */
+			for(int i=diagram.variables-1;i>=0;i--){
+				int event=diagram.order[i];
+				Relation succeeds=EventStructure.succeeds;
+				for(int c=succeeds.next(event,0);c!=-1;c=succeeds.next(event,c+1)){
+					diagram.root=diagram.and(diagram.root,diagram.implication(event,c));
+				}
+				Relation conflicts=EventStructure.conflicts;
+				for(int c=conflicts.next(event,0);c!=-1;c=conflicts.next(event,c+1)){
+					if(diagram.position[c]>i){
+						diagram.root=diagram.and(diagram.root,diagram.exclusion(event,c));
+					}
+				}
+			}
+		}catch(BudgetExhausted e){
+			return null;
+		}
+		diagram.budget=null;
+		return diagram;
+	}
+
+	/* Returns the events in the order of a breadth first walk from each event
+	 * with no causes, which steps from an event to its causes, its
+	 * consequences and the events it conflicts with alike - so each event is
+	 * placed close to every event it has a constraint with, not just one of
+	 * them. Every event is reached, as each lies after some event with no
+	 * causes, but the walk is started again from any event left over in case
+	 * causality has a cycle */
+	static int[] variableOrder(){
+		int size=EventStructure.events.length;
+		Relation[] related={EventStructure.succeeds,EventStructure.precedes,EventStructure.conflicts};
+		int[] order=new int[size];
+		int count=0;
+		boolean[] placed=new boolean[size];
+		for(int pass=0;pass<2;pass++){
+			for(int start=0;start<size;start++){
+				if(placed[start] || (pass==0 && EventStructure.succeeds.degree(start)>0)){
+					continue;
+				}
+
+				/* The order array doubles as the queue of the walk */
+				int next=count;
+				order[count++]=start;
+				placed[start]=true;
+				while(next<count){
+					int event=order[next++];
+					for(int r=0;r<related.length;r++){
+						Relation relation=related[r];
+						for(int e=relation.next(event,0);e!=-1;e=relation.next(event,e+1)){
+							if(!placed[e]){
+								placed[e]=true;
+								order[count++]=e;
+							}
+						}
+					}
+				}
+			}
+		}
+		return order;
+	}
+
+	/* Returns the diagram of "if the event completes, so has the cause" */
+	int implication(int event, int cause){
+		if(position[cause]<position[event]){
+			return mk(position[cause],mk(position[event],TRUE,FALSE),TRUE);
+		}
+		return mk(position[event],TRUE,mk(position[cause],FALSE,TRUE));
+	}
+
+	/* Returns the diagram of "the two events do not both complete" */
+	int exclusion(int a, int b){
+		int first=Math.min(position[a],position[b]);
+		int second=Math.max(position[a],position[b]);
+		return mk(first,TRUE,mk(second,TRUE,FALSE));
+	}
+
+	/* Returns the unique node with the given variable and children */
+	int mk(int variable, int lowChild, int highChild){
+		if(lowChild==highChild){
+			return lowChild;
+		}
+		int mask=slots.length-1;
+		int slot=hash(variable,lowChild,highChild)&mask;
+		while(slots[slot]!=-1){
+			int node=slots[slot];
+			if(var[node]==variable && low[node]==lowChild && high[node]==highChild){
+				return node;
+			}
+			slot=(slot+1)&mask;
+		}
+
+		/* Create the node, checking the limit on the nodes created so far
+		 * (nodes are never freed, so this counts every node ever made) each
+		 * time and the rest of the budget every so often */
+		if(budget!=null && (budget.full(nodes) ||
+				(nodes%ExplorationBudget.CHECK_INTERVAL==0 && budget.exhausted(nodes,0)))){
+			throw new BudgetExhausted();
+		}
+		if(nodes==var.length){
+			var=Arrays.copyOf(var,nodes*2);
+			low=Arrays.copyOf(low,nodes*2);
+			high=Arrays.copyOf(high,nodes*2);
+		}
+		int node=nodes++;
+		var[node]=variable;
+		low[node]=lowChild;
+		high[node]=highChild;
+		slots[slot]=node;
+		if(nodes*2>slots.length){
+			resize();
+		}
+		return node;
+	}
+
+	/* Doubles the hash table and re-inserts every node */
+	void resize(){
+		slots=new int[slots.length*2];
+		Arrays.fill(slots,-1);
+		int mask=slots.length-1;
+		for(int node=2;node<nodes;node++){
+			int slot=hash(var[node],low[node],high[node])&mask;
+			while(slots[slot]!=-1){
+				slot=(slot+1)&mask;
+			}
+			slots[slot]=node;
+		}
+	}
+
+	/* Mixes a node's variable and children into a hash */
+	static int hash(int variable, int lowChild, int highChild){
+		long hash=variable*0x9E3779B97F4A7C15L+lowChild*0xC2B2AE3D27D4EB4FL+highChild*0x165667B19E3779F9L;
+		return (int)(hash^(hash>>>29));
+	}
+
+	/* Returns the conjunction of two diagrams. This is the usual recursive
+	 * algorithm - split both on the earlier of their top variables, conjoin
+	 * the two halves and join the results - run with an explicit stack, on
+	 * which each frame records which of its halves have been conjoined.
+	 * Conjunction is symmetric, so each pair is put in order before it is
+	 * looked up in the cache */
+	int and(int a, int b){
+		int top=0;
+		int held=0;
+		push(top++,a,b);
+		while(top>0){
+			int x=frameA[top-1];
+			int y=frameB[top-1];
+			int v=Math.min(var[x],var[y]);
+			if(frameStage[top-1]==0){
+				int result=trivialAnd(x,y);
+				if(result==-1){
+					int entry=hash(x,y,0)&(CACHE_SIZE-1);
+					if(cacheA[entry]==x && cacheB[entry]==y){
+						result=cacheResult[entry];
+					}
+				}
+				if(result!=-1){
+					results[held++]=result;
+					top--;
+					continue;
+				}
+
+				/* Conjoin the low halves first */
+				frameStage[top-1]=1;
+				push(top++,(var[x]==v)?low[x]:x,(var[y]==v)?low[y]:y);
+			}
+			else if(frameStage[top-1]==1){
+				frameStage[top-1]=2;
+				push(top++,(var[x]==v)?high[x]:x,(var[y]==v)?high[y]:y);
+			}
+			else{
+				int highResult=results[--held];
+				int lowResult=results[--held];
+				int result=mk(v,lowResult,highResult);
+				int entry=hash(x,y,0)&(CACHE_SIZE-1);
+				cacheA[entry]=x;
+				cacheB[entry]=y;
+				cacheResult[entry]=result;
+				results[held++]=result;
+				top--;
+			}
+		}
+		return results[0];
+	}
+
+	/* Places a new frame for conjoining two diagrams at the given position
+	 * of the stack, with the pair in order */
+	void push(int position, int a, int b){
+		frameA[position]=Math.min(a,b);
+		frameB[position]=Math.max(a,b);
+		frameStage[position]=0;
+	}
+
+	/* Returns the conjunction of two diagrams if it is immediate, otherwise -1 */
+	static int trivialAnd(int a, int b){
+		if(a==FALSE || b==FALSE){
+			return FALSE;
+		}
+		if(a==TRUE || a==b){
+			return b;
+		}
+		if(b==TRUE){
+			return a;
+		}
+		return -1;
+	}
+
+	/* Returns the diagram of the sets which contain every included event and
+	 * no excluded event - either set may be null */
+	int cube(long[] included, long[] excluded){
+		int node=TRUE;
+		for(int i=variables-1;i>=0;i--){
+			if(included!=null && EventSet.contains(included,order[i])){
+				node=mk(i,FALSE,node);
+			}
+			else if(excluded!=null && EventSet.contains(excluded,order[i])){
+				node=mk(i,node,FALSE);
+			}
+		}
+		return node;
+	}
+
+	/* Returns the number of nodes in the diagram of the configurations */
+	public int size(){
+		int count=0;
+		boolean[] reached=reachable(root);
+		for(int i=0;i<reached.length;i++){
+			if(reached[i]){
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/* Returns the events in the order of the diagram's variables */
+	public int[] eventOrder(){
+		return order.clone();
+	}
+
+	/* Returns true if the set of events is a configuration */
+	public boolean contains(long[] events){
+		int node=root;
+		while(node>TRUE){
+			node=EventSet.contains(events,order[var[node]])?high[node]:low[node];
+		}
+		return node==TRUE;
+	}
+
+	/* Returns the number of configurations */
+	public BigInteger count(){
+		return count(root);
+	}
+
+	/* Returns true if some configuration contains every included event and no
+	 * excluded event - either set may be null */
+	public boolean exists(long[] included, long[] excluded){
+		return and(root,cube(included,excluded))!=FALSE;
+	}
+
+	/* Returns the number of configurations which contain every included event
+	 * and no excluded event - either set may be null */
+	public BigInteger count(long[] included, long[] excluded){
+		return count(and(root,cube(included,excluded)));
+	}
+
+	/* Returns the events which are in some configuration, found in one pass
+	 * over the diagram without creating any nodes: an event is in some
+	 * configuration exactly when some path from the root to TRUE sets its
+	 * variable, either at a node of that variable whose high child leads to
+	 * TRUE or by skipping over the variable, which leaves it free */
+	public long[] possibleEvents(){
+		boolean[] reached=reachable(root);
+
+		/* The nodes with a path to TRUE - in a reduced diagram this is every
+		 * node but FALSE. Children are always numbered below their parents,
+		 * so the nodes can be visited in ID order */
+		boolean[] live=new boolean[reached.length];
+		live[TRUE]=true;
+		for(int node=2;node<reached.length;node++){
+			live[node]=reached[node] && (live[low[node]] || live[high[node]]);
+		}
+
+		/* Mark the variables which can be set, as runs of variables skipped
+		 * over on the way to a live child - each run adds one at its first
+		 * variable and takes one away after its last */
+		int[] runs=new int[variables+1];
+		if(live[root]){
+			runs[0]++;
+			runs[var[root]]--;
+		}
+		for(int node=2;node<reached.length;node++){
+			if(!reached[node]){
+				continue;
+			}
+			if(live[high[node]]){
+				runs[var[node]]++;
+				runs[var[high[node]]]--;
+			}
+			if(live[low[node]]){
+				runs[var[node]+1]++;
+				runs[var[low[node]]]--;
+			}
+		}
+		long[] possible=EventSet.create(variables);
+		for(int i=0,open=0;i<variables;i++){
+			open+=runs[i];
+			if(open>0){
+				EventSet.add(possible,order[i]);
+			}
+		}
+		return possible;
+	}
+
+	/* Returns the number of configurations with each number of events, up to
+	 * the size of the largest configuration */
+	public BigInteger[] levelCounts(){
+		boolean[] reached=reachable(root);
+
+		/* The number of paths from each node to TRUE with each number of
+		 * variables set, counting only the variables from the node's own
+		 * onwards and stopping at the most that can be set. Children are
+		 * always numbered below their parents, so the nodes can be visited in
+		 * ID order */
+		BigInteger[][] binomials=new BigInteger[variables+1][];
+		BigInteger[][] counts=new BigInteger[reached.length][];
+		counts[FALSE]=new BigInteger[0];
+		counts[TRUE]=new BigInteger[]{BigInteger.ONE};
+		for(int node=2;node<reached.length;node++){
+			if(!reached[node]){
+				continue;
+			}
+			BigInteger[] lowCounts=widen(counts[low[node]],var[low[node]]-var[node]-1,binomials);
+			BigInteger[] highCounts=widen(counts[high[node]],var[high[node]]-var[node]-1,binomials);
+			BigInteger[] row=new BigInteger[Math.max(lowCounts.length,highCounts.length+1)];
+			Arrays.fill(row,BigInteger.ZERO);
+			for(int k=0;k<lowCounts.length;k++){
+				row[k]=row[k].add(lowCounts[k]);
+			}
+			for(int k=0;k<highCounts.length;k++){
+				row[k+1]=row[k+1].add(highCounts[k]);
+			}
+			counts[node]=row;
+		}
+		BigInteger[] levels=widen(counts[root],var[root],binomials);
+		return levels.length==0?new BigInteger[]{BigInteger.ZERO}:levels.clone();
+	}
+
+	/* Returns the counts by number of events set once the given number of
+	 * free variables are added, each of which may be set or not - the
+	 * product of the counts with the binomial coefficients C(free,k), which
+	 * are kept in the table given once worked out. The result may be one of
+	 * the table's rows, so must not be changed */
+	static BigInteger[] widen(BigInteger[] counts, int free, BigInteger[][] binomials){
+		if(free==0 || counts.length==0){
+			return counts;
+		}
+		if(binomials[free]==null){
+			BigInteger[] row=new BigInteger[free+1];
+			row[0]=BigInteger.ONE;
+			for(int k=1;k<=free;k++){
+				row[k]=row[k-1].multiply(BigInteger.valueOf(free-k+1)).divide(BigInteger.valueOf(k));
+			}
+			binomials[free]=row;
+		}
+		BigInteger[] coefficients=binomials[free];
+		if(counts.length==1 && counts[0].equals(BigInteger.ONE)){
+			return coefficients;
+		}
+		BigInteger[] row=new BigInteger[counts.length+free];
+		Arrays.fill(row,BigInteger.ZERO);
+		for(int k=0;k<counts.length;k++){
+			if(counts[k].signum()==0){
+				continue;
+			}
+			for(int j=0;j<=free;j++){
+				row[k+j]=row[k+j].add(counts[k].multiply(coefficients[j]));
+			}
+		}
+		return row;
+	}
+
+	/* Returns the number of assignments to all of the variables which the
+	 * diagram with the given root accepts */
+	BigInteger count(int node){
+		boolean[] reached=reachable(node);
+		BigInteger[] counts=new BigInteger[reached.length];
+		counts[FALSE]=BigInteger.ZERO;
+		counts[TRUE]=BigInteger.ONE;
+		for(int i=2;i<reached.length;i++){
+			if(reached[i]){
+				counts[i]=counts[low[i]].shiftLeft(var[low[i]]-var[i]-1).add(
+						counts[high[i]].shiftLeft(var[high[i]]-var[i]-1));
+			}
+		}
+		return counts[node].shiftLeft(var[node]);
+	}
+
+	/* Marks the nodes reachable from the given node, in an array indexed by
+	 * node ID up to and including it */
+	boolean[] reachable(int node){
+		boolean[] reached=new boolean[Math.max(node,TRUE)+1];
+		int[] stack=new int[reached.length];
+		int depth=0;
+		stack[depth++]=node;
+		reached[node]=true;
+		while(depth>0){
+			int next=stack[--depth];
+			if(next>TRUE){
+				if(!reached[low[next]]){
+					reached[low[next]]=true;
+					stack[depth++]=low[next];
+				}
+				if(!reached[high[next]]){
+					reached[high[next]]=true;
+					stack[depth++]=high[next];
+				}
+			}
+		}
+		return reached;
+	}
+}
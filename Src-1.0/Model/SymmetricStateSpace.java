@@ -0,0 +1,175 @@
+package Model;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.TreeMap;
+
+/* The state space of an event structure explored up to its symmetries (see
+ * EventSymmetry): only the canonical representative of each orbit of
+ * configurations is visited, and each is weighted by the size of its orbit so
+ * that the numbers of states, transitions and maximal configurations of the
+ * whole state space are still exact. Interchangeable events make the full
+ * state space grow with the factorial of the number of them (every order in
+ * which conflicting twins are chosen, and every subset of concurrent twins,
+ * gives another configuration), while the representatives only record how
+ * many of each class have completed.
+ * Every configuration in an orbit has the same number of events enabled, so a
+ * representative's transitions stand for its orbit size times as many. The
+ * exploration is breadth first, like the transition graph builders in
+ * TransitionGraph, and keeps the representatives in a state store */
+public class SymmetricStateSpace {
+
+	/* The representatives visited */
+	StateStore states;
+
+	/* The symmetries explored up to */
+	EventSymmetry symmetry;
+
+	/* The numbers of states, transitions and maximal configurations of the
+	 * full state space */
+	BigInteger stateCount=BigInteger.ZERO;
+	BigInteger transitionCount=BigInteger.ZERO;
+	BigInteger maximalCount=BigInteger.ZERO;
+
+	/* The number of representatives with each orbit size */
+	TreeMap<BigInteger,Integer> orbits=new TreeMap<BigInteger,Integer>();
+
+	/* The reason that the exploration is incomplete, or null if it is not */
+	String truncation=null;
+
+	/* Creates an empty result for the loaded structure, keeping the
+	 * representatives in the given empty store */
+	SymmetricStateSpace(StateStore states){
+		this.states=states;
+		symmetry=EventStructure.symmetry;
+	}
+
+	/* Explores the representatives of the loaded structure within the
+	 * budget. If the budget runs out, the counts are of the orbits found so
+	 * far, and so are lower bounds, and the result is marked as truncated */
+	public static SymmetricStateSpace explore(ExplorationBudget budget){
+		return explore(budget,new ConfigurationIndex(EventStructure.events.length));
+	}
+
+	/* As above, keeping the representatives in the given empty store, which
+	 * must be for the number of events of the loaded structure. The store
+	 * must not be a PrefixStateStore: a representative which canonicalising
+	 * has moved is not its parent plus the event completed, so could not be
+	 * rebuilt from them */
+	public static SymmetricStateSpace explore(ExplorationBudget budget, StateStore store){
+		TransitionGraph.generateKeys();
+		budget.start();
+		SymmetricStateSpace space=new SymmetricStateSpace(store);
+
+		/* The set of events which can be completed from each representative
+		 * is only held until it has been expanded, and the IDs serve as the
+		 * queue of representatives to expand */
+		ArrayList<long[]> enabled=new ArrayList<long[]>();
+		space.states.add(EventSet.create(EventStructure.events.length),0,-1,-1);
+		enabled.add(TransitionGraph.initialEnabled());
+		for(int next=0;next<space.states.size();next++){
+			int size=space.states.size();
+			if(next%ExplorationBudget.CHECK_INTERVAL==0 && budget.exhausted(size,size-next)){
+				break;
+			}
+			long[] source=space.states.configuration(next);
+			long[] sourceEnabled=enabled.get(next);
+			enabled.set(next,null);
+
+			/* Weight the representative by its orbit */
+			BigInteger orbit=space.symmetry.orbitSize(source);
+			int degree=EventSet.size(sourceEnabled);
+			space.stateCount=space.stateCount.add(orbit);
+			space.transitionCount=space.transitionCount.add(orbit.multiply(BigInteger.valueOf(degree)));
+			if(degree==0){
+				space.maximalCount=space.maximalCount.add(orbit);
+			}
+			Integer count=space.orbits.get(orbit);
+			space.orbits.put(orbit,count==null?1:count+1);
+			if(degree>0 && budget.tooDeep(EventSet.size(source))){
+				continue;
+			}
+
+			/* Complete each enabled event, recording the representatives of
+			 * the configurations reached which have not been seen before */
+			boolean full=false;
+			for(int e=EventSet.next(sourceEnabled,0);e!=-1 && !full;e=EventSet.next(sourceEnabled,e+1)){
+				long[] configuration=source.clone();
+				EventSet.add(configuration,e);
+				boolean moved=space.symmetry.canonicalise(configuration);
+				long hash=moved?hash(configuration):space.states.hash(next)^TransitionGraph.eventKeys[e];
+				if(space.states.get(configuration,hash)!=-1){
+					continue;
+				}
+				if(budget.full(space.states.size())){
+					full=true;
+					break;
+				}
+				space.states.add(configuration,hash,next,e);
+				enabled.add(moved?enabledIn(configuration):TransitionGraph.enabledAfter(sourceEnabled,configuration,e));
+			}
+			if(full){
+				break;
+			}
+		}
+		space.truncation=budget.truncation();
+		space.states.trim();
+		return space;
+	}
+
+	/* Returns the hash of a configuration, the XOR of its events' keys */
+	static long hash(long[] configuration){
+		long hash=0;
+		for(int e=EventSet.next(configuration,0);e!=-1;e=EventSet.next(configuration,e+1)){
+			hash^=TransitionGraph.eventKeys[e];
+		}
+		return hash;
+	}
+
+	/* Returns the set of events which can be completed from the configuration */
+	static long[] enabledIn(long[] configuration){
+		long[] enabled=EventSet.create(EventStructure.events.length);
+		for(int e=0;e<EventStructure.events.length;e++){
+			if(!EventSet.contains(configuration,e) && TransitionGraph.checkCanComplete(configuration,e)){
+				EventSet.add(enabled,e);
+			}
+		}
+		return enabled;
+	}
+
+	/* Returns the number of representatives visited */
+	public int representatives(){
+		return states.size();
+	}
+
+	/* Returns the number of states of the full state space */
+	public BigInteger states(){
+		return stateCount;
+	}
+
+	/* Returns the number of transitions of the full state space */
+	public BigInteger transitions(){
+		return transitionCount;
+	}
+
+	/* Returns the number of maximal configurations of the full state space */
+	public BigInteger maximal(){
+		return maximalCount;
+	}
+
+	/* Returns the orbit sizes found, in ascending order, each with the
+	 * number of representatives whose orbit has that size */
+	public TreeMap<BigInteger,Integer> orbitSizes(){
+		return new TreeMap<BigInteger,Integer>(orbits);
+	}
+
+	/* Returns true if the exploration is incomplete because its budget ran out */
+	public boolean isTruncated(){
+		return truncation!=null;
+	}
+
+	/* Returns the reason that the exploration is incomplete, or null if it is not */
+	public String truncation(){
+		return truncation;
+	}
+}
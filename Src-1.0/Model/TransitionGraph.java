@@ -1,182 +1,356 @@
 package Model;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Random;
 
 /* This class contains the logic which generates the state transition
  * system representation of the Event Structure */
 public class TransitionGraph {
 
-	/* The list of node objects for the graph */
-	public static LinkedList<TransitionGraphNode> nodes = new LinkedList<TransitionGraphNode>();
-	
-	/* Stores the number of nodes at each level in the tree - this is used
-	 * to help calculate render sizes and positions
-	 */
-	public static LinkedList<Integer> noAtLevel = new LinkedList<Integer>();
+	/* The transition graph - it is replaced as a whole whenever the graph is
+	 * built or cleared, and is never modified once it has been published here */
+	public static StateGraph graph=CompactTransitionGraph.empty();
 	
 	/* The list of completed nodes during an execution sequence - the integer value
 	 * represents the node ID */
-	public static LinkedList<Integer> executionTrace = new LinkedList<Integer>();
+	public static IntList executionTrace = new IntList();
+	
+	/* A random key for each event - the hash of a node's configuration is the
+	 * XOR of the keys of its completed events, so the hash of a new node is
+	 * derived from its parent's hash with a single XOR */
+	static long[] eventKeys=new long[0];
 	
-	/* The number of nodes produced so far - this is incremented and allows
-	 * us to assign a numerical identifier to each node */
-	static int counter=0;
+	/* The graph shown around the current run when the graph is expanded on
+	 * demand (see LazyTransitionGraph), or null when it is built in full */
+	static LazyTransitionGraph lazy=null;
 	
 	/* Clears the transition graph data */
 	public static void clearGraph(){
-		nodes.clear();
-		noAtLevel.clear();
-		counter=0;
+		graph=CompactTransitionGraph.empty();
+		lazy=null;
+	}
+	
+	/* Shows the transition graph around the current run, expanding it on
+	 * demand as the structure executes, in place of building it in full */
+	public static void showLazily(){
+		lazy=new LazyTransitionGraph();
+		lazy.reset();
+	}
+	
+	/* Generates a key for every event of the loaded event structure - a fixed
+	 * seed is used so that hashes are reproducible between runs */
+	static void generateKeys(){
+		Random random=new Random(EventStructure.events.length);
+		eventKeys=new long[EventStructure.events.length];
+		for(int i=0;i<eventKeys.length;i++){
+			eventKeys[i]=random.nextLong();
+		}
 	}
 	
 	/* Updates the execution trace of the graph using the ID of the event
 	 * which has just completed */
-	static void updateTrace(int id){
+	public static void updateTrace(int id){
 		
-		/* Retrieve the last element from the trace */
-		Integer lastNode = executionTrace.getLast();
-		TransitionGraphNode node=null;
-		for(int i=0;i<nodes.size();i++){
-			if(nodes.get(i).id==lastNode.intValue()){
-				node=nodes.get(i);
-				break;
-			}
+		/* A lazily expanded graph is rebuilt around the new current state */
+		if(lazy!=null){
+			lazy.advance(id);
+			return;
 		}
 		
 		/* Calculate the next node in the execution trace by identifying
-		 * the transition which has just occurred */
-		for(int i=0;i<node.transitionLabels.size();i++){
-			if(node.transitionLabels.get(i).equals(EventStructure.events[id])){
-				executionTrace.add(new Integer(node.targetNodes.get(i)));
-				break;
-			}
+		 * the transition which has just occurred from the last node */
+		int next=graph.successor(executionTrace.get(executionTrace.size()-1),id);
+		if(next!=-1){
+			executionTrace.add(next);
 		}
 	}
 	
 	/* Reset the execution trace */
-	static void resetTrace(){
+	public static void resetTrace(){
+		if(lazy!=null){
+			lazy.reset();
+			return;
+		}
 		executionTrace.clear();	
-		executionTrace.add(new Integer(0));
+		executionTrace.add(0);
+	}
+	
+	/* Returns the string representation of a node - this is simply the
+	 * collection of its completed events in set notation form, in the order
+	 * that they were completed, with the IDs resolved back to names */
+	public static String nodeData(int node){
+		int[] events=graph.events(node);
+		StringBuilder string=new StringBuilder("{");
+		for(int j=0;j<events.length;j++){
+			if(j>0){
+				string.append(", ");
+			}
+			string.append(EventStructure.events[events[j]]);
+		}
+		return string.append("}").toString();
 	}
 	
+	/* Exploration orders which may be passed to buildGraph */
+	public static final int DEPTH_FIRST=1;
+	public static final int BREADTH_FIRST=2;
+	public static final int PARALLEL=3;
+	
 	/* Builds the transition graph - the event structure must already be
-	 * "loaded" into the EventStructure class */
+	 * "loaded" into the EventStructure class. The graph is explored depth
+	 * first, which numbers the nodes in the order that they have always been
+	 * numbered in */
 	public static void buildGraph(){
-		
-		/* Clear the graph */
+		buildGraph(DEPTH_FIRST);
+	}
+	
+	/* Builds the whole transition graph, exploring it in the given order */
+	public static void buildGraph(int order){
+		buildGraph(order,new ExplorationBudget());
+	}
+	
+	/* Builds the transition graph within the given budget, and makes it the
+	 * current graph with a fresh execution trace */
+	public static void buildGraph(int order, ExplorationBudget budget){
 		clearGraph();
-		
-		/* Reset the execution trace of the graph */
+		graph=explore(order,budget);
 		resetTrace();
+	}
+	
+	/* Explores the transition graph in the given order and returns it, without
+	 * replacing the current graph, so it may be called from a background
+	 * thread. All orders produce the same set of nodes and transitions - only
+	 * the node IDs differ, and the parallel order numbers the nodes exactly as
+	 * breadth first does. No order uses recursion, so the size of the graph is
+	 * limited by the available memory (and the budget) rather than by the depth
+	 * of the Java call stack. If the budget runs out, the graph found so far is
+	 * returned marked as truncated. The configurations are kept on the heap */
+	public static StateGraph explore(int order, ExplorationBudget budget){
+		return explore(order,budget,new ConfigurationIndex(EventStructure.events.length));
+	}
+	
+	/* As above, keeping the configurations in the given empty store, which
+	 * must be for the number of events of the loaded structure */
+	public static StateGraph explore(int order, ExplorationBudget budget, StateStore store){
+		
+		/* Generate the hash keys for the events */
+		generateKeys();
+		budget.start();
 		
 		/* Create the initial empty node, where no events have been
-		 * completed */
-		TransitionGraphNode empty= new TransitionGraphNode(counter);
-		empty.addEvent("");
-		nodes.add(empty);
+		 * completed. The set of events which can be completed from each
+		 * node is only held until the node has been expanded */
+		CompactTransitionGraph building=new CompactTransitionGraph(store);
+		ArrayList<long[]> enabled=new ArrayList<long[]>();
+		building.addNode(EventSet.create(EventStructure.events.length),0,-1,-1);
+		enabled.add(initialEnabled());
 		
-		/* Begin recursive traversal of the graph */
-		traverseGraph(empty);
+		/* Explore the graph from the empty node */
+		if(order==BREADTH_FIRST){
+			traverseBreadthFirst(building,enabled,budget);
+		}
+		else if(order==PARALLEL){
+			ParallelGraphBuilder.traverse(building,enabled,budget);
+		}
+		else{
+			traverseDepthFirst(building,enabled,budget);
+		}
 		
+		/* Convert the graph into its final form */
+		building.truncation=budget.truncation();
+		building.finish();
+		return building;
 	}
 	
-	/* Recursively traverses the entire transition graph
-	 * from the specified node */
-	static void traverseGraph(TransitionGraphNode source){
+	/* Traverses the graph breadth first. Nodes are numbered as they are
+	 * discovered, so the IDs themselves serve as the queue of nodes which
+	 * remain to be expanded */
+	static void traverseBreadthFirst(CompactTransitionGraph graph, ArrayList<long[]> enabled,
+			ExplorationBudget budget){
+		int next=0;
+		for(;next<graph.size();next++){
+			if(next%ExplorationBudget.CHECK_INTERVAL==0 && budget.exhausted(graph.size(),graph.size()-next)){
+				break;
+			}
+			long[] sourceEnabled=enabled.get(next);
+			
+			/* Nodes beyond the depth limit are left unexpanded */
+			if(!EventSet.isEmpty(sourceEnabled) && budget.tooDeep(graph.level(next))){
+				leaveUnexpanded(graph,enabled,next);
+				continue;
+			}
+			
+			/* For every event which can be completed from this node, link to
+			 * the resulting node, recording it if it is new - stop if there is
+			 * no room for it */
+			boolean full=false;
+			for(int i=EventSet.next(sourceEnabled,0);i!=-1 && !full;i=EventSet.next(sourceEnabled,i+1)){
+				full=(addSuccessor(graph,enabled,next,i,budget)==FULL);
+			}
+			if(full){
+				break;
+			}
+			
+			/* The node's enabled set is no longer needed once it has been expanded */
+			enabled.set(next,null);
+		}
 		
-		/* Modify the list that tracks the number of nodes
-		 * at each level in the tree - this data is used for
-		 * rendering (size calculation) */
-		if(noAtLevel.size()<source.completedEvents.size()){
-			noAtLevel.add(new Integer(1));
+		/* If the exploration stopped early, every node from the one being
+		 * expanded onwards is incomplete */
+		for(;next<graph.size();next++){
+			leaveUnexpanded(graph,enabled,next);
 		}
-		else {
-			Integer temp=noAtLevel.remove(source.completedEvents.size()-1);
-			Integer newInt=new Integer(temp.intValue()+1);
-			noAtLevel.add(source.completedEvents.size()-1,newInt);
+	}
+	
+	/* Traverses the graph depth first from the empty node, using an
+	 * explicit stack in place of recursion. Each stack frame holds a node
+	 * and the next event to try from it, so the nodes are discovered in
+	 * exactly the order that a recursive traversal would find them */
+	static void traverseDepthFirst(CompactTransitionGraph graph, ArrayList<long[]> enabled,
+			ExplorationBudget budget){
+		
+		/* A path can never be longer than the number of events, so
+		 * the stack is allocated at its maximum depth */
+		int[] stackNodes=new int[EventStructure.events.length+1];
+		int[] stackNext=new int[EventStructure.events.length+1];
+		int depth=0;
+		if(!EventSet.isEmpty(enabled.get(0)) && budget.tooDeep(0)){
+			leaveUnexpanded(graph,enabled,0);
+			return;
 		}
+		stackNodes[depth]=0;
+		stackNext[depth]=0;
+		depth++;
 		
-		/* For every possible event */
-		for(int i=0;i<EventStructure.events.length;i++){
+		int steps=0;
+		while(depth>0){
+			if(++steps%ExplorationBudget.CHECK_INTERVAL==0 && budget.exhausted(graph.size(),depth)){
+				break;
+			}
+			int source=stackNodes[depth-1];
+			
+			/* Find the next event which can be completed from the node
+			 * on top of the stack */
+			int i=EventSet.next(enabled.get(source),stackNext[depth-1]);
 			
-			/* Continue if the event is not in the list for the current node */
-			if(!source.contains(EventStructure.events[i])){
-				
-				/* If the event can be completed from the current node */
-				if(checkCanComplete(source.completedEvents,EventStructure.events[i])){
-					
-					/*Increment the counter */
-					counter++;
-					
-					/* Create a new node identical to the old node, and add the newly
-					 * completed event to it
-					 */
-					TransitionGraphNode target=new TransitionGraphNode(counter,source);
-					target.addEvent(EventStructure.events[i]);
-					
-					/* Assume that the node just created is not already present */
-					TransitionGraphNode existing=null;
-					
-					/* Check against all existing nodes */
-					for(int j=0;j<nodes.size();j++){
-						if(nodes.get(j).isEqualTo(target)){
-							existing=nodes.get(j);
-							break;
-						}
-					}
-					
-					/* If the node does in fact exist, just create a link between
-					 * the current node and that node with the event as a transition
-					 */
-					if(existing!=null){
-						source.addTransition(EventStructure.events[i],existing.id);
-						counter--;
-					}
-					
-					/* Otherwise, add the new node to the graph, link to it
-					 * and then move to it and continue the traversal recursively
-					 */
-					else{
-						source.addTransition(EventStructure.events[i], target.id);
-						nodes.add(target);
-						traverseGraph(target);
-					}
+			/* If there are no more events to try then the node is finished
+			 * with, so release its enabled set and return to its parent */
+			if(i==-1){
+				enabled.set(source,null);
+				depth--;
+				continue;
+			}
+			stackNext[depth-1]=i+1;
+			
+			/* Link to the resulting node - if it is new then move to it and
+			 * continue the traversal from there, unless it is beyond the
+			 * depth limit */
+			int target=addSuccessor(graph,enabled,source,i,budget);
+			if(target==FULL){
+				break;
+			}
+			if(target!=-1){
+				if(!EventSet.isEmpty(enabled.get(target)) && budget.tooDeep(depth)){
+					leaveUnexpanded(graph,enabled,target);
+					continue;
 				}
+				stackNodes[depth]=target;
+				stackNext[depth]=0;
+				depth++;
 			}
 		}
+		
+		/* If the exploration stopped early, the nodes on the stack
+		 * are incomplete */
+		while(depth>0){
+			leaveUnexpanded(graph,enabled,stackNodes[--depth]);
+		}
+	}
+	
+	/* Returned by addSuccessor when the budget allows no more nodes */
+	static final int FULL=-2;
+	
+	/* Adds a transition from the source node labelled with the given event,
+	 * which must be able to complete from the source node. Returns the ID of
+	 * the target node if it has just been created, -1 if it already existed,
+	 * or FULL if it would exceed the budget's state limit */
+	static int addSuccessor(CompactTransitionGraph graph, ArrayList<long[]> enabled, int source, int event,
+			ExplorationBudget budget){
+		
+		/* Form the configuration of the node reached by completing
+		 * the event, and look it up in the index - the hash is
+		 * updated by XOR-ing in the event's key */
+		long[] configuration=graph.configuration(source);
+		EventSet.add(configuration,event);
+		long hash=graph.hash(source)^eventKeys[event];
+		int existing=graph.find(configuration,hash);
+		
+		/* If the node does in fact exist, just create a link between
+		 * the current node and that node with the event as a transition
+		 */
+		if(existing!=-1){
+			graph.addTransition(source,event,existing);
+			return -1;
+		}
+		if(budget.full(graph.size())){
+			return FULL;
+		}
+		
+		/* Otherwise, create a new node from the old node's configuration
+		 * with the newly completed event added, and link to it */
+		int target=graph.addNode(configuration,hash,source,event);
+		enabled.add(enabledAfter(enabled.get(source),configuration,event));
+		graph.addTransition(source,event,target);
+		return target;
+	}
+	
+	/* Marks a node as not fully expanded, unless no event can be completed
+	 * from it anyway, and releases its enabled set */
+	static void leaveUnexpanded(CompactTransitionGraph graph, ArrayList<long[]> enabled, int node){
+		long[] nodeEnabled=enabled.get(node);
+		if(nodeEnabled!=null && !EventSet.isEmpty(nodeEnabled)){
+			graph.markUnexpanded(node);
+		}
+		enabled.set(node,null);
 	}
 	
 	/* Returns true if an event can be completed from the current node (specified
-	 * as a string of already completed events)
+	 * as the set of already completed events). The event can be completed if
+	 * every event which it succeeds is in the set and no event which it is in
+	 * conflict with is in the set - only the events related to it are visited,
+	 * or whole rows are tested a word at a time if the relations are dense
 	 */
-	static boolean checkCanComplete(LinkedList<String> completed, String event){
-		
-		/* Check against all possible events */
+	static boolean checkCanComplete(long[] completed, int event){
+		return EventStructure.succeeds.rowContainedIn(event,completed) &&
+				!EventStructure.conflicts.rowIntersects(event,completed);
+	}
+	
+	/* Returns the set of events which can be completed from the empty node */
+	static long[] initialEnabled(){
+		long[] empty=EventSet.create(EventStructure.events.length);
+		long[] enabled=EventSet.create(EventStructure.events.length);
 		for(int i=0;i<EventStructure.events.length;i++){
-			
-			/* If the desired event is a successor of the event which we are
-			 * checking against, and the event is not a component of this state, 
-			 * then we immediately return false	
-			 */
-			if(EventStructure.succeeds[EventStructure.lookup(event)][i] &&
-					!completed.contains(EventStructure.events[i])){
-				return false;
+			if(checkCanComplete(empty,i)){
+				EventSet.add(enabled,i);
 			}
-			
-			/* If the desired event is in conflict with the event which we
-			 * are checking against, and the event IS a component of this state,
-			 * then we also return false
-			 */
-			if(EventStructure.conflicts[EventStructure.lookup(event)][i] &&
-					completed.contains(EventStructure.events[i])){
-				return false;
+		}
+		return enabled;
+	}
+	
+	/* Returns the set of events which can be completed from a node, given the
+	 * enabled set of its parent node, its own configuration and the event which
+	 * led from the parent to it. Completing the event disables it and every
+	 * event in conflict with it, and can only enable the event's direct
+	 * successors, so only those successors need to be checked */
+	static long[] enabledAfter(long[] parentEnabled, long[] configuration, int event){
+		long[] enabled=parentEnabled.clone();
+		EventStructure.conflicts.removeRow(event,enabled);
+		EventSet.remove(enabled,event);
+		Relation successors=EventStructure.precedes;
+		for(int i=successors.next(event,0);i!=-1;i=successors.next(event,i+1)){
+			if(checkCanComplete(configuration,i)){
+				EventSet.add(enabled,i);
 			}
 		}
-		
-		/* If the desired event has survived all of the above tests, then
-		 * it is a valid transition from the current node, and hence
-		 * we return true
-		 */
-		return true;
+		return enabled;
 	}
 		
 }
@@ -42,7 +42,7 @@ public class TransitionGraphRender {
 		/* Calculate the widest possible string that can be created
 		 * by appending all node data on a single level of the tree */
 		StringBuffer widestString=new StringBuffer();
-		for(int i=0;i<=TransitionGraph.noAtLevel.get(widestLevel);i++){
+		for(int i=0;i<=TransitionGraph.graph.levelSize(widestLevel);i++){
 			for(int j=0;j<widestLevel;j++){
 				widestString.append("@@");
 			}
@@ -70,11 +70,19 @@ public class TransitionGraphRender {
 		arrowHead.addPoint( (int)-(((float)size)/120), (int)-(((float)size)/60));
 		arrowHead.addPoint( (int)(((float)size)/120),(int)-(((float)size)/60));
 
+		/* Mark the nodes which are part of the execution trace */
+		StateGraph graph=TransitionGraph.graph;
+		boolean[] inTrace=new boolean[graph.size()];
+		for(int j=0;j<TransitionGraph.executionTrace.size();j++){
+			inTrace[TransitionGraph.executionTrace.get(j)]=true;
+		}
+
 		/* For every transition node */
 		for(int i=0;i<transitionPositions.length;i=i+2){
 
 			/* Store the width and height of the string for the node */
-			float stringWidth=g2.getFontMetrics().stringWidth(TransitionGraph.nodes.get(i/2).nodeData());
+			String nodeData=TransitionGraph.nodeData(i/2);
+			float stringWidth=g2.getFontMetrics().stringWidth(nodeData);
 			float stringHeight=g2.getFontMetrics().getHeight();
 
 			/* Calculate the onscreen coordinates of the center of the node and string */
@@ -85,11 +93,12 @@ public class TransitionGraphRender {
 			g2.setColor(Color.BLACK);
 
 			/* For every outgoing transition for the current node */
-			for(int j=0; j<TransitionGraph.nodes.get(i/2).targetNodes.size();j++){
+			for(int j=0; j<graph.degree(i/2);j++){
 
 				/* Calculate the end coordinates of the connecting line (the top of the target node) */
-				int endX=(int)(((float)transitionPositions[TransitionGraph.nodes.get(i/2).targetNodes.get(j)*2]/100)*width);
-				int endY=(int)(((float)transitionPositions[TransitionGraph.nodes.get(i/2).targetNodes.get(j)*2+1]/100)*height-stringHeight/2);
+				int target=graph.target(i/2,j);
+				int endX=(int)(((float)transitionPositions[target*2]/100)*width);
+				int endY=(int)(((float)transitionPositions[target*2+1]/100)*height-stringHeight/2);
 				g2.drawLine((int)centerX,(int)(centerY+stringHeight/2),endX,endY);
 
 				/* Create an empty transform for storing the final arrow-head coordinates */
@@ -113,25 +122,16 @@ public class TransitionGraphRender {
 
 			}
 
-			/* Assume that the current transition node isn't part of the
-			 * execution trace */
-			boolean completed=false;
-
-			/* Search the list of nodes involved in the execution trace
-			 * for the current node */
-			for(int j=0;j<TransitionGraph.executionTrace.size();j++){
-				if(TransitionGraph.executionTrace.get(j).intValue()==
-					TransitionGraph.nodes.get(i/2).id){
-					completed=true;
-					break;
-				}
-			}
-
 			/* If the node is part of the trace, set the colour to red */
-			if(completed==true){
+			if(inTrace[i/2]){
 				g2.setColor(GlobalAttributes.completedColour);
 			}
 
+			/* Nodes left unexpanded when the graph was truncated are grey */
+			else if(!graph.isExpanded(i/2)){
+				g2.setColor(Color.LIGHT_GRAY);
+			}
+
 			/* Otherwise, set the colour to white */
 			else{
 				g2.setColor(Color.WHITE);
@@ -145,50 +145,65 @@ public class TransitionGraphRender {
 			g2.drawRect((int) (centerX-stringWidth/2),(int) (centerY-stringHeight/2),(int) stringWidth,(int) stringHeight);
 
 			/* Finally, render the string over the top */
-			g2.drawString(TransitionGraph.nodes.get(i/2).nodeData(), centerX-((float)stringWidth)/(2.0f),
+			g2.drawString(nodeData, centerX-((float)stringWidth)/(2.0f),
 					centerY+((float)stringHeight)/(2.0f)-2*stringHeight/7);
 		}
 	}
 	
 	/* Calculates on-screen coordinates for all nodes */
 	public static void calculatePositions(){
+		StateGraph graph=TransitionGraph.graph;
+		transitionPositions=positions(graph);
+		widestLevel=widestLevel(graph);
+	}
+
+	/* Returns the on-screen coordinates of the nodes of a graph, without
+	 * touching the graph being drawn, so that a graph can be laid out on
+	 * another thread before it is shown */
+	static int[] positions(StateGraph graph){
 
 		/* Stores the positions of all transition nodes - two cells per
 		 * coordinate (x and y) */
-		transitionPositions=new int[TransitionGraph.nodes.size()*2];
-
-		/* The number of node positions calculated so far in the loop
-		 * for each level in the graph */
-		int[] levelsSoFar=new int[TransitionGraph.noAtLevel.size()];
+		int[] transitionPositions=new int[graph.size()*2];
+		int levels=graph.levels();
 
-		/* For every node in the graph */
-		for(int i=0;i<TransitionGraph.nodes.size();i++){
+		/* For every level in the graph, counting the level of the empty
+		 * node as 1 */
+		for(int level=1;level<=levels;level++){
+			int width=graph.levelSize(level-1);
 
-			/* Calculate the level in which the node appears (depth) */
-			int level=TransitionGraph.nodes.get(i).completedEvents.size();
+			/* Space the nodes of the level evenly across it in ID order */
+			for(int j=0;j<width;j++){
+				int i=graph.stateAt(level-1,j);
 
-			/* Increment the number of node positions calculated so far at this level */
-			levelsSoFar[level-1]++;
-
-			/* Calculate the x and y positions for the node */
-			transitionPositions[2*i]=100/TransitionGraph.noAtLevel.get(level-1)*levelsSoFar[level-1]-100/TransitionGraph.noAtLevel.get(level-1)/2;
-			transitionPositions[2*i+1]=100/TransitionGraph.noAtLevel.size()*level-100/TransitionGraph.noAtLevel.size()/2;
+				/* Calculate the x and y positions for the node */
+				transitionPositions[2*i]=100/width*(j+1)-100/width/2;
+				transitionPositions[2*i+1]=100/levels*level-100/levels/2;
+			}
 		}
+		return transitionPositions;
+	}
+
+	/* Returns the level of a graph which needs the most characters */
+	static int widestLevel(StateGraph graph){
+		int widestLevel=0;
+		int levels=graph.levels();
 
 		/* The maximum number of characters that appear on a particular level 
 		 * (used to calculate the widest level of the graph */
 		int maxHorizontalChars=0;
 
 		/* For every level in the tree */
-		for(int i=0;i<TransitionGraph.noAtLevel.size();i++){
+		for(int i=0;i<levels;i++){
 
 			/* If the number of characters is larger than the stored maximum, then
 			 * replace it for subsequent iterations' comparisons */
-			if(TransitionGraph.noAtLevel.get(i)*(2*i+1)>maxHorizontalChars){
-				maxHorizontalChars=TransitionGraph.noAtLevel.get(i)*(i+1);
+			if(graph.levelSize(i)*(2*i+1)>maxHorizontalChars){
+				maxHorizontalChars=graph.levelSize(i)*(i+1);
 				widestLevel=i;
 			}
-		}	
+		}
+		return widestLevel;
 	}
 	
 }
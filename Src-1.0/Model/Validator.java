@@ -0,0 +1,157 @@
+package Model;
+
+import java.util.ArrayList;
+
+/* This class contains the checks which a definition must pass before it is
+ * accepted as a Prime Event Structure - this class is never instantiated.
+ * Causality must be a partial order, so it may not contain a cycle, and no
+ * event may be in conflict with itself (i.e. have two causes, or itself and a
+ * cause, which are in conflict). Either defect leaves the structure with events
+ * which can never be completed, and cycles would otherwise send the closure and
+ * the graph builders round the cycle for a long time, so the structure is
+ * rejected at load with a description of the offending events. Cycles are
+ * found with Tarjan's strongly connected components algorithm, run without
+ * recursion, in time linear in the number of events and relations */
+public class Validator {
+
+	/* The most event names listed in a single message */
+	static final int MAX_NAMES=20;
+
+	/* Returns a message describing each cycle in the precedes relation - every
+	 * strongly connected component with more than one event is a cycle */
+	public static ArrayList<String> findCycles(Relation precedes, String[] names){
+		ArrayList<String> problems=new ArrayList<String>();
+		int size=precedes.size();
+
+		/* The order in which each event was first visited (0 if not yet
+		 * visited), and the earliest visited event reachable from it which is
+		 * still on the stack of the current search */
+		int[] index=new int[size];
+		int[] lowest=new int[size];
+		boolean[] onStack=new boolean[size];
+		int visited=0;
+
+		/* The stack of events whose component has not yet been found */
+		int[] stack=new int[size];
+		int stackSize=0;
+
+		/* The path of the depth first search, with the next neighbour to
+		 * try from each event on the path */
+		int[] path=new int[size];
+		int[] cursor=new int[size];
+		int pathSize=0;
+
+		for(int root=0;root<size;root++){
+			if(index[root]!=0){
+				continue;
+			}
+
+			/* Visit the root */
+			index[root]=lowest[root]=++visited;
+			stack[stackSize++]=root;
+			onStack[root]=true;
+			path[pathSize]=root;
+			cursor[pathSize++]=0;
+
+			while(pathSize>0){
+				int event=path[pathSize-1];
+				int next=precedes.next(event,cursor[pathSize-1]);
+
+				/* Follow the next edge out of the event on top of the path */
+				if(next!=-1){
+					cursor[pathSize-1]=next+1;
+					if(index[next]==0){
+						index[next]=lowest[next]=++visited;
+						stack[stackSize++]=next;
+						onStack[next]=true;
+						path[pathSize]=next;
+						cursor[pathSize++]=0;
+					}
+					else if(onStack[next]){
+						lowest[event]=Math.min(lowest[event],index[next]);
+					}
+					continue;
+				}
+
+				/* All edges have been followed, so leave the event - if nothing
+				 * earlier is reachable from it then it roots a component, which
+				 * is everything above it on the stack */
+				pathSize--;
+				if(pathSize>0){
+					int parent=path[pathSize-1];
+					lowest[parent]=Math.min(lowest[parent],lowest[event]);
+				}
+				if(lowest[event]==index[event]){
+					int start=stackSize;
+					do{
+						onStack[stack[--start]]=false;
+					}while(stack[start]!=event);
+					if(stackSize-start>1){
+						problems.add("Causality cycle between events: "+list(names,stack,start,stackSize));
+					}
+					stackSize=start;
+				}
+			}
+		}
+		return problems;
+	}
+
+	/* Returns a message describing each event which is in conflict with
+	 * itself through its causes - only the earliest such events are named, as
+	 * every event which follows one of them inherits the conflict. The closure
+	 * must have been computed for an acyclic precedes relation */
+	public static ArrayList<String> findSelfConflicts(CausalClosure closure, Relation succeeds,
+			Relation conflicts, String[] names){
+		ArrayList<String> problems=new ArrayList<String>();
+		int following=0;
+		for(int event=0;event<succeeds.size();event++){
+			if(!closure.inConflict(event,event)){
+				continue;
+			}
+
+			/* Skip events which only inherit the problem from a cause */
+			boolean inherited=false;
+			for(int p=succeeds.next(event,0);p!=-1 && !inherited;p=succeeds.next(event,p+1)){
+				inherited=closure.inConflict(p,p);
+			}
+			if(inherited){
+				following++;
+				continue;
+			}
+
+			/* Find a declared conflict between two members of the event's
+			 * local configuration to name in the message */
+			long[] local=closure.localConfiguration(event);
+			String pair="";
+			for(int d=EventSet.next(local,0);d!=-1 && pair.length()==0;d=EventSet.next(local,d+1)){
+				for(int c=conflicts.next(d,d+1);c!=-1;c=conflicts.next(d,c+1)){
+					if(EventSet.contains(local,c)){
+						pair=names[d]+"#"+names[c];
+						break;
+					}
+				}
+			}
+			problems.add("Event "+names[event]+" is in conflict with itself - its causes include "+pair);
+		}
+		if(following>0){
+			problems.add(following+" further events inherit a conflict with themselves from the above");
+		}
+		return problems;
+	}
+
+	/* Returns a comma-separated list of the named events between the
+	 * given positions of the array */
+	static String list(String[] names, int[] events, int from, int to){
+		StringBuilder string=new StringBuilder();
+		for(int i=from;i<to && i<from+MAX_NAMES;i++){
+			if(i>from){
+				string.append(", ");
+			}
+			string.append(names[events[i]]);
+		}
+		if(to-from>MAX_NAMES){
+			string.append(" and "+(to-from-MAX_NAMES)+" more");
+		}
+		return string.toString();
+	}
+}